@@ -0,0 +1,86 @@
+package com.coffee.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Catalogs {
+
+    private static final String[] PRIMARY_INGREDIENTS = {"Coffee", "Milk", "Chocolate", "Sugar"};
+
+    private Catalogs() {
+    }
+
+    /**
+     * Drink names must be letters only, so the index is written in base 26.
+     */
+    public static String nameOf(int index) {
+        StringBuilder sb = new StringBuilder("Drink");
+        do {
+            sb.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return sb.toString();
+    }
+
+    public static Drink drinkOf(int index) {
+        return new Drink(nameOf(index))
+                .addIngredient(new Ingredient(PRIMARY_INGREDIENTS[index % 4], 1 + index % 3))
+                .addIngredient(new Ingredient("Water", 2));
+    }
+
+    public static List<Drink> drinks(int size) {
+        List<Drink> drinks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            drinks.add(drinkOf(i));
+        }
+        return drinks;
+    }
+
+    public static File writeProperties(int size) throws IOException {
+        File file = File.createTempFile("drinks", ".properties");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "ISO-8859-1")) {
+            out.println("drinks.number=" + size);
+            List<Drink> drinks = drinks(size);
+            for (int i = 1; i <= size; i++) {
+                Drink drink = drinks.get(i - 1);
+                out.println("drink" + i + ".name=" + drink.getName());
+                out.println("drink" + i + ".ingredients=" + drink.getIngredients().size());
+                int j = 1;
+                for (Ingredient ingredient : drink.getIngredients()) {
+                    out.println("drink" + i + ".ingredient" + j + ".name=" + ingredient.getName());
+                    out.println("drink" + i + ".ingredient" + j + ".quantity=" + ingredient.getQuantity());
+                    j++;
+                }
+            }
+        }
+        return file;
+    }
+
+    public static CoffeeMachine machine(int catalogSize) {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.loadIngredientsFromMemory();
+        coffeeMachine.loadDrinks(drinks(catalogSize));
+        return coffeeMachine;
+    }
+
+    public static Ingredient[] stocksOf(CoffeeMachine coffeeMachine, Recipe recipe) {
+        Ingredient[] stocks = new Ingredient[recipe.getIngredientsCount()];
+        for (int i = 0; i < stocks.length; i++) {
+            stocks[i] = coffeeMachine.getIngredientsMap().get(recipe.getIngredientName(i));
+        }
+        return stocks;
+    }
+
+    /**
+     * Gives back what a recipe took, so stock never runs out while measuring.
+     */
+    public static void refill(Ingredient[] stocks, Recipe recipe) {
+        for (int i = 0; i < stocks.length; i++) {
+            stocks[i].increaseQuantity(recipe.getQuantity(i));
+        }
+    }
+}
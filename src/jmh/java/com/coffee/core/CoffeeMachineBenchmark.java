@@ -0,0 +1,106 @@
+package com.coffee.core;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoffeeMachineBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int catalogSize;
+
+    private CoffeeMachine coffeeMachine;
+
+    private String[] names;
+
+    private int next;
+
+    private Drink drink;
+
+    private Recipe recipe;
+
+    private Ingredient[] stocks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        coffeeMachine = Catalogs.machine(catalogSize);
+        names = new String[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            names[i] = Catalogs.nameOf(i);
+        }
+        drink = coffeeMachine.getDrinkByName(names[0]);
+        recipe = coffeeMachine.getRecipe(names[0]);
+        stocks = Catalogs.stocksOf(coffeeMachine, recipe);
+    }
+
+    private String nextName() {
+        if (++next == names.length) {
+            next = 0;
+        }
+        return names[next];
+    }
+
+    @Benchmark
+    public Drink getDrinkByName() {
+        return coffeeMachine.getDrinkByName(nextName());
+    }
+
+    @Benchmark
+    public Recipe getRecipe() {
+        return coffeeMachine.getRecipe(nextName());
+    }
+
+    @Benchmark
+    public boolean containsDrink() {
+        return coffeeMachine.containsDrink(nextName());
+    }
+
+    @Benchmark
+    public List<String> getDrinksNameList() {
+        return coffeeMachine.getDrinksNameList();
+    }
+
+    @Benchmark
+    public List<String> getDrinkNamesByPrefix() {
+        return coffeeMachine.getDrinkNames(nextName().substring(0, 1));
+    }
+
+    @Benchmark
+    public Drink copyDrink() {
+        return new Drink(drink);
+    }
+
+    @Benchmark
+    public Recipe customizeRecipe() {
+        return recipe.customize(DrinkModifiers.of(1, true, 2));
+    }
+
+    @Benchmark
+    public void prepareDrink() {
+        coffeeMachine.prepareDrink(drink);
+        Catalogs.refill(stocks, recipe);
+    }
+
+    @Benchmark
+    public void prepareRecipe() {
+        coffeeMachine.prepareDrink(recipe);
+        Catalogs.refill(stocks, recipe);
+    }
+}
@@ -0,0 +1,88 @@
+package com.coffee.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many threads preparing drinks on one shared machine, either all using the
+ * same ingredients or each using its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ContendedPrepareBenchmark {
+
+    private static final String[] OWN_INGREDIENTS = {"Coffee", "Milk", "Chocolate", "Sugar"};
+
+    @State(Scope.Benchmark)
+    public static class SharedMachine {
+
+        CoffeeMachine coffeeMachine;
+
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            coffeeMachine = new CoffeeMachine();
+            coffeeMachine.loadIngredientsFromMemory();
+            coffeeMachine.loadDrinksFromMemory();
+            for (String ingredient : OWN_INGREDIENTS) {
+                coffeeMachine.addDrink(new Drink("Only" + ingredient)
+                        .addIngredient(new Ingredient(ingredient, 1)));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Order {
+
+        Recipe espresso;
+        Ingredient[] espressoStocks;
+
+        Recipe own;
+        Ingredient[] ownStocks;
+
+        @Setup(Level.Trial)
+        public void setUp(SharedMachine machine) {
+            espresso = machine.coffeeMachine.getRecipe("Espresso");
+            espressoStocks = Catalogs.stocksOf(machine.coffeeMachine, espresso);
+            int thread = machine.threads.getAndIncrement();
+            own = machine.coffeeMachine.getRecipe("Only" + OWN_INGREDIENTS[thread % OWN_INGREDIENTS.length]);
+            ownStocks = Catalogs.stocksOf(machine.coffeeMachine, own);
+        }
+    }
+
+    @Benchmark
+    public void sameIngredients(SharedMachine machine, Order order) {
+        prepare(machine.coffeeMachine, order.espresso, order.espressoStocks);
+    }
+
+    @Benchmark
+    public void disjointIngredients(SharedMachine machine, Order order) {
+        prepare(machine.coffeeMachine, order.own, order.ownStocks);
+    }
+
+    private static void prepare(CoffeeMachine coffeeMachine, Recipe recipe, Ingredient[] stocks) {
+        try {
+            coffeeMachine.prepareDrink(recipe);
+            Catalogs.refill(stocks, recipe);
+        } catch (IllegalStateException e) {
+            // another thread holds the stock right now
+        }
+    }
+}
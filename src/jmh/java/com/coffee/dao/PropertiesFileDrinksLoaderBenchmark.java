@@ -0,0 +1,64 @@
+package com.coffee.dao;
+
+import com.coffee.core.Catalogs;
+import com.coffee.core.Drink;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PropertiesFileDrinksLoaderBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int catalogSize;
+
+    private File catalog;
+
+    private File binaryCatalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = Catalogs.writeProperties(catalogSize);
+        binaryCatalog = File.createTempFile("drinks", ".catalog");
+        binaryCatalog.deleteOnExit();
+        BinaryCatalogConverter.convert(new StreamingDrinksLoader(catalog), binaryCatalog);
+    }
+
+    @Benchmark
+    public List<Drink> loadDrinks() throws IOException {
+        return new PropertiesFileDrinksLoader(catalog).loadDrinks();
+    }
+
+    @Benchmark
+    public List<Drink> streamDrinks() throws IOException {
+        return new StreamingDrinksLoader(catalog).loadDrinks();
+    }
+
+    @Benchmark
+    public MappedCatalogDrinksLoader openMappedCatalog() throws IOException {
+        return new MappedCatalogDrinksLoader(binaryCatalog);
+    }
+
+    @Benchmark
+    public List<Drink> loadMappedDrinks() throws IOException {
+        return new MappedCatalogDrinksLoader(binaryCatalog).loadDrinks();
+    }
+}
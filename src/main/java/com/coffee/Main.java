@@ -1,8 +1,37 @@
 package com.coffee;
 
+import ui.BatchHandler;
 import ui.InputHandler;
+import ui.OrderServer;
 import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Ingredient;
+import com.coffee.core.InventoryListener;
+import com.coffee.dao.CatalogWatcher;
+import com.coffee.dao.CompositeDrinksLoader;
+import com.coffee.dao.DrinksLoaders;
+import com.coffee.dao.FavouritesJournal;
+import com.coffee.dao.InventoryJournal;
+import com.coffee.metrics.StockForecaster;
+import com.coffee.order.OrderProcessor;
+import com.coffee.utils.ValidationRules;
+import com.coffee.utils.Validator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,22 +41,171 @@ public class Main {
 
     private static final String DRINKS_FILE = "drinks.properties";
 
-    public static void main(String[] args) throws IOException {
+    private static final int ORDER_WORKERS = Integer.getInteger("coffee.orderWorkers", 2);
+
+    private static final int ORDER_QUEUE_CAPACITY = Integer.getInteger("coffee.orderQueueCapacity", 64);
+
+    private static final CompositeDrinksLoader.ConflictPolicy CATALOG_CONFLICTS = CompositeDrinksLoader.ConflictPolicy
+            .valueOf(System.getProperty("coffee.catalogConflicts", "LAST_WINS"));
+
+    private static final int RECIPE_CACHE_SIZE = Integer.getInteger("coffee.recipeCacheSize", 0);
+
+    private static final File DATA_DIRECTORY = new File(System.getProperty("coffee.dataDirectory", "data"));
+
+    private static final String USER = System.getProperty("coffee.user", System.getProperty("user.name"));
+
+    private static final boolean WATCH_CATALOGS = Boolean.parseBoolean(System.getProperty("coffee.watchCatalogs", "true"));
+
+    private static final long CONSUMPTION_WINDOW_SECONDS = Long.getLong("coffee.consumptionWindowSeconds", 600);
+
+    private static final long REFILL_LEAD_SECONDS = Long.getLong("coffee.refillLeadSeconds", 900);
+
+    private static final int SERVER_PORT = Integer.getInteger("coffee.serverPort", -1);
+
+    private static final String BATCH = System.getProperty("coffee.batch");
+
+    private static final BatchHandler.StockPolicy BATCH_STOCK = BatchHandler.StockPolicy
+            .valueOf(System.getProperty("coffee.batchStock", "FIXED"));
+
+    private static final int BATCH_ORDERS_SAMPLE_RATE = Integer.getInteger("coffee.log.sampleRate.orders", 10000);
+
+    private static final int BATCH_BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        Validator.setRules(ValidationRules.fromProperties(System.getProperties()));
+
+        List<File> catalogs = new ArrayList<>();
+        for (String catalog : args.length > 0 ? args : new String[]{DRINKS_FILE}) {
+            catalogs.add(new File(catalog));
+        }
+
+        if (BATCH != null) {
+            runBatch(catalogs);
+            return;
+        }
 
         InputHandler inputHandler = new InputHandler();
 
-        CoffeeMachine coffeeMachine = new CoffeeMachine(DRINKS_FILE);
+        CoffeeMachine coffeeMachine = new CoffeeMachine(DrinksLoaders.forFiles(catalogs, CATALOG_CONFLICTS),
+                RECIPE_CACHE_SIZE);
         inputHandler.print("Loading coffee machine...");
         coffeeMachine.init();
         inputHandler.print("Coffee machine loaded and ready!");
 
+        if (!DATA_DIRECTORY.isDirectory() && !DATA_DIRECTORY.mkdirs()) {
+            throw new IOException("Could not create the data directory " + DATA_DIRECTORY);
+        }
+        FavouritesJournal favouritesJournal = new FavouritesJournal(DATA_DIRECTORY, coffeeMachine.getFavourites());
+        favouritesJournal.open(USER);
+        inputHandler.setUserId(USER);
+
+        InventoryJournal inventoryJournal = new InventoryJournal(DATA_DIRECTORY);
+        Map<String, Integer> stock = inventoryJournal.open();
+        coffeeMachine.setStockLevels(stock);
+        List<Ingredient> unrecorded = new ArrayList<>();
+        for (Ingredient ingredient : coffeeMachine.getIngredients()) {
+            if (!stock.containsKey(ingredient.getName())) {
+                unrecorded.add(ingredient);
+            }
+        }
+        if (!unrecorded.isEmpty()) {
+            inventoryJournal.recordLevels(unrecorded);
+        }
+        StockForecaster stockForecaster = new StockForecaster(coffeeMachine, CONSUMPTION_WINDOW_SECONDS,
+                REFILL_LEAD_SECONDS, TimeUnit.SECONDS);
+        stockForecaster.setRefillListener((ingredient, quantity, nanosToEmpty) -> logger.warn(
+                "Refill {} soon: {} left, empty in about {} s", ingredient, quantity,
+                TimeUnit.NANOSECONDS.toSeconds(nanosToEmpty)));
+        coffeeMachine.setInventoryListener(new InventoryListener() {
+            @Override
+            public CompletableFuture<Void> onConsumed(Ingredient stock, int quantity) {
+                stockForecaster.onConsumed(stock, quantity);
+                return inventoryJournal.onConsumed(stock, quantity);
+            }
+
+            @Override
+            public CompletableFuture<Void> onRestored(Ingredient stock, int quantity) {
+                stockForecaster.onRestored(stock, quantity);
+                return inventoryJournal.onRestored(stock, quantity);
+            }
+        });
+
         inputHandler.setCoffeeMachine(coffeeMachine);
 
+        try {
+            coffeeMachine.getMetrics().registerMBean("coffeeMachine");
+        } catch (JMException e) {
+            logger.warn("Could not expose the coffee machine metrics through JMX", e);
+        }
+
+        CatalogWatcher catalogWatcher = null;
+        if (WATCH_CATALOGS) {
+            catalogWatcher = new CatalogWatcher(catalogs, () -> {
+                try {
+                    coffeeMachine.reloadDrinks(DrinksLoaders.forFiles(catalogs, CATALOG_CONFLICTS));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            catalogWatcher.start();
+        }
+
+        OrderProcessor orderProcessor = new OrderProcessor(coffeeMachine, ORDER_WORKERS, ORDER_QUEUE_CAPACITY);
+        inputHandler.setOrderProcessor(orderProcessor);
+
+        OrderServer orderServer = null;
+        if (SERVER_PORT >= 0) {
+            orderServer = new OrderServer(coffeeMachine, orderProcessor, SERVER_PORT);
+            orderServer.start();
+        }
+
         logger.info("Coffee machine started");
         System.out.println("Super cool coffee machine started!");
 
         inputHandler.handleInput();
 
+        if (orderServer != null) {
+            orderServer.close();
+        }
+        if (catalogWatcher != null) {
+            catalogWatcher.close();
+        }
+        favouritesJournal.close();
+        orderProcessor.shutdown();
+        orderProcessor.awaitTermination(10, TimeUnit.SECONDS);
+        inventoryJournal.close();
+        logger.info("Coffee machine stopped: {} orders prepared, {} failed, {} rejected",
+                orderProcessor.getPreparedOrders(), orderProcessor.getFailedOrders(),
+                orderProcessor.getRejectedOrders());
+        if (coffeeMachine.getRecipeCache() != null) {
+            logger.info("Recipe cache: {}", coffeeMachine.getRecipeCache());
+        }
+
+    }
+
+    /**
+     * Replays the orders of the batch file, or of the standard input for
+     * "-", on a machine with a full stock. The data directory is left alone,
+     * so that every replay starts from the same state.
+     */
+    private static void runBatch(List<File> catalogs) throws IOException {
+        CoffeeMachine coffeeMachine = new CoffeeMachine(DrinksLoaders.forFiles(catalogs, CATALOG_CONFLICTS),
+                RECIPE_CACHE_SIZE);
+        // one line per order would fill the log buffer
+        coffeeMachine.setOrdersLogSampleRate(BATCH_ORDERS_SAMPLE_RATE);
+        coffeeMachine.init();
+
+        InputStream input = "-".equals(BATCH) ? System.in : new FileInputStream(BATCH);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8),
+                BATCH_BUFFER_SIZE)) {
+            BatchHandler.Summary summary = new BatchHandler(coffeeMachine, USER, BATCH_STOCK).run(in, out);
+            out.write(summary.toString());
+            out.write('\n');
+        } finally {
+            out.flush();
+        }
     }
 
 }
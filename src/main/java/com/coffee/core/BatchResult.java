@@ -0,0 +1,33 @@
+package com.coffee.core;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class BatchResult {
+
+    private final List<Drink> fulfilled;
+
+    private final List<Drink> rejected;
+
+    BatchResult(List<Drink> fulfilled, List<Drink> rejected) {
+        this.fulfilled = Collections.unmodifiableList(fulfilled);
+        this.rejected = Collections.unmodifiableList(rejected);
+    }
+
+    public List<Drink> getFulfilled() {
+        return fulfilled;
+    }
+
+    public List<Drink> getRejected() {
+        return rejected;
+    }
+
+    public boolean isComplete() {
+        return rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return fulfilled.size() + " fulfilled, " + rejected.size() + " rejected";
+    }
+}
@@ -0,0 +1,202 @@
+package com.coffee.core;
+
+import com.coffee.dao.DrinksIndex;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Drinks offered by a coffee machine with their recipes. The machine reads
+ * the current catalog without locking and replaces it as a whole on reload,
+ * so an order resolves its recipe against a single version of the catalog.
+ *
+ * A lazy catalog only keeps the position of each drink in its index and
+ * materialises a recipe the first time it is asked for.
+ */
+final class Catalog {
+
+    private final ConcurrentMap<String, Drink> drinks = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Recipe> recipes = new ConcurrentHashMap<>();
+
+    private final Set<String> loadedNames = ConcurrentHashMap.newKeySet();
+
+    private final DrinksIndex index;
+
+    private final Map<String, Integer> positions;
+
+    private final RecipeCache cache;
+
+    private final List<String> addedNames = new ArrayList<>();
+
+    private volatile DrinkNameIndex nameIndex;
+
+    Catalog() {
+        index = null;
+        positions = Collections.emptyMap();
+        cache = null;
+    }
+
+    private Catalog(DrinksIndex index, int cacheSize) {
+        this.index = index;
+        this.cache = new RecipeCache(cacheSize);
+        Map<String, Integer> indexed = new HashMap<>(index.size() * 4 / 3 + 1);
+        for (int i = 0; i < index.size(); i++) {
+            if (indexed.putIfAbsent(index.getName(i), i) != null) {
+                throw new IllegalArgumentException("You are trying to add twice the drink: "
+                        + index.getName(i));
+            }
+        }
+        positions = indexed;
+    }
+
+    static Catalog lazy(DrinksIndex index, int cacheSize) {
+        return new Catalog(index, cacheSize);
+    }
+
+    void add(Drink drink, boolean loaded) {
+        add(drink, Recipe.of(drink), loaded);
+    }
+
+    /**
+     * The recipe is published before the drink, so a reader that finds the
+     * drink always finds its recipe.
+     */
+    private synchronized void add(Drink drink, Recipe recipe, boolean loaded) {
+        if (positions.containsKey(drink.getName()) || drinks.containsKey(drink.getName())) {
+            throw new IllegalArgumentException("You are trying to add twice the drink: "
+                    + drink.getName());
+        }
+        recipes.put(drink.getName(), recipe);
+        drinks.put(drink.getName(), drink);
+        addedNames.add(drink.getName());
+        if (loaded) {
+            loadedNames.add(drink.getName());
+        }
+        DrinkNameIndex index = nameIndex;
+        if (index != null) {
+            nameIndex = index.with(drink.getName());
+        }
+    }
+
+    /**
+     * Builds the next version of this catalog from a fresh load. Drinks whose
+     * definition did not change keep their drink and recipe instances, and
+     * drinks saved at runtime are carried over unless the load now defines a
+     * drink with the same name.
+     */
+    Catalog reload(Collection<Drink> loadedDrinks) {
+        Catalog next = new Catalog();
+        for (Drink drink : loadedDrinks) {
+            Drink current = drinks.get(drink.getName());
+            if (current != null && loadedNames.contains(drink.getName()) && current.equals(drink)) {
+                next.add(current, recipes.get(drink.getName()), true);
+            } else {
+                next.add(drink, true);
+            }
+        }
+        carrySavedDrinks(next);
+        return next;
+    }
+
+    Catalog reload(DrinksIndex loadedIndex, int cacheSize) {
+        Catalog next = lazy(loadedIndex, cacheSize);
+        carrySavedDrinks(next);
+        return next;
+    }
+
+    private void carrySavedDrinks(Catalog next) {
+        for (Drink drink : drinks.values()) {
+            String name = drink.getName();
+            if (!loadedNames.contains(name) && !next.drinks.containsKey(name) && !next.positions.containsKey(name)) {
+                next.add(drink, recipes.get(name), false);
+            }
+        }
+    }
+
+    Drink findDrink(String name) {
+        Drink drink = drinks.get(name);
+        if (drink == null && index != null) {
+            Recipe recipe = findRecipe(name);
+            return recipe == null ? null : recipe.toDrink();
+        }
+        return drink;
+    }
+
+    Recipe findRecipe(String name) {
+        Recipe recipe = recipes.get(name);
+        if (recipe == null && index != null) {
+            Integer position = positions.get(name);
+            if (position != null) {
+                return cache.get(name, key -> Recipe.of(index.getDrink(position)));
+            }
+        }
+        return recipe;
+    }
+
+    /**
+     * The recipe cache of a lazy catalog, null for an eager one.
+     */
+    RecipeCache getCache() {
+        return cache;
+    }
+
+    int size() {
+        return positions.size() + drinks.size();
+    }
+
+    boolean contains(String name) {
+        return drinks.containsKey(name) || positions.containsKey(name);
+    }
+
+    /**
+     * The name index, built on first use and then kept up to date by add,
+     * so that loading a catalog does not rebuild it for every drink.
+     */
+    DrinkNameIndex getNameIndex() {
+        DrinkNameIndex current = nameIndex;
+        if (current == null) {
+            synchronized (this) {
+                current = nameIndex;
+                if (current == null) {
+                    current = new DrinkNameIndex(getNames());
+                    nameIndex = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>(size());
+        if (index != null) {
+            for (int i = 0; i < index.size(); i++) {
+                names.add(index.getName(i));
+            }
+        }
+        names.addAll(addedNames);
+        return names;
+    }
+
+    /**
+     * All the drinks; a lazy catalog decodes them from its index on every
+     * call without caching them.
+     */
+    Collection<Drink> getDrinks() {
+        if (index == null) {
+            return Collections.unmodifiableCollection(drinks.values());
+        }
+        List<Drink> all = new ArrayList<>(size());
+        for (int i = 0; i < index.size(); i++) {
+            all.add(index.getDrink(i));
+        }
+        all.addAll(drinks.values());
+        return Collections.unmodifiableList(all);
+    }
+}
@@ -0,0 +1,15 @@
+package com.coffee.core;
+
+import java.util.List;
+
+/**
+ * Told when the drinks of a coffee machine change. The calls are made while
+ * the catalog is locked, in the order the changes happened.
+ */
+public interface CatalogListener {
+
+    void onDrinkAdded(String drinkName);
+
+    void onCatalogReloaded(List<String> drinkNames);
+
+}
@@ -1,38 +1,76 @@
 package com.coffee.core;
 
-import com.coffee.dao.PropertiesFileDrinksLoader;
+import com.coffee.dao.DrinksIndex;
+import com.coffee.dao.DrinksLoader;
+import com.coffee.dao.DrinksLoaders;
+import com.coffee.metrics.CoffeeMachineMetrics;
+import com.coffee.metrics.FailureCause;
+import com.coffee.utils.AsyncLogger;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class CoffeeMachine {
 
-    private static Logger logger = LoggerFactory.getLogger(CoffeeMachine.class);
+    private static final AsyncLogger logger = AsyncLogger.getLogger(CoffeeMachine.class);
 
-    private Map<String, Ingredient> ingredientMap;
+    private final AsyncLogger ordersLogger = AsyncLogger.getLogger(CoffeeMachine.class, "orders", 1);
 
-    private Map<String, Drink> drinksMap;
+    private final Inventory inventory;
+
+    private volatile Catalog catalog = new Catalog();
+
+    private final Object catalogLock = new Object();
+
+    private final List<CatalogListener> catalogListeners = new CopyOnWriteArrayList<>();
+
+    private final FavouritesStore favourites = new FavouritesStore();
+
+    private final CoffeeMachineMetrics metrics = new CoffeeMachineMetrics(this::getIngredients);
     
-    private final PropertiesFileDrinksLoader loader;
+    private final DrinksLoader loader;
+
+    private final int recipeCacheSize;
 
     public CoffeeMachine() {
-        ingredientMap = new HashMap<>();
-        drinksMap = new HashMap<>();
+        inventory = new Inventory();
         loader = null;
+        recipeCacheSize = 0;
     }
 
     public CoffeeMachine(String propertyFile) throws IOException {
-        ingredientMap = new HashMap<>();
-        drinksMap = new HashMap<>();
-        loader = new PropertiesFileDrinksLoader(new File(propertyFile));
+        this(DrinksLoaders.forFile(new File(propertyFile)));
+    }
+
+    public CoffeeMachine(DrinksLoader loader) {
+        this(loader, 0);
+    }
+
+    /**
+     * With a positive recipe cache size, a loader that is also a drinks index
+     * is read lazily: recipes are materialised on their first order and at
+     * most recipeCacheSize of them are kept.
+     */
+    public CoffeeMachine(DrinksLoader loader, int recipeCacheSize) {
+        if (!Objects.nonNull(loader)) {
+            throw new IllegalArgumentException("CoffeeMachine requires a drinks loader");
+        }
+        if (recipeCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid recipe cache size");
+        }
+        inventory = new Inventory();
+        this.loader = loader;
+        this.recipeCacheSize = recipeCacheSize;
     }
 
     public CoffeeMachine(List<Ingredient> ingredients) {
@@ -44,15 +82,62 @@ public class CoffeeMachine {
     }
 
     public Collection<Ingredient> getIngredients() {
-        return this.ingredientMap.values();
+        return inventory.getIngredients();
     }
 
     public Map<String, Ingredient> getIngredientsMap() {
-        return ingredientMap;
+        return inventory.asMap();
+    }
+
+    public void setInventoryListener(InventoryListener listener) {
+        inventory.setListener(listener);
+    }
+
+    /**
+     * Sets the stock of the ingredients already in the machine, e.g. to the
+     * levels recovered from a journal. Unknown ingredients are ignored. The
+     * inventory listener is told the change of each level.
+     */
+    public void setStockLevels(Map<String, Integer> levels) {
+        for (Map.Entry<String, Integer> level : levels.entrySet()) {
+            Ingredient stock = inventory.findStock(level.getKey());
+            if (stock == null) {
+                logger.warn("Ignoring the stock of {}: not in the coffee machine", level.getKey());
+            } else {
+                awaitJournal(inventory.setLevel(stock, level.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Adds units to the stock of an ingredient of the machine.
+     */
+    public void refill(String ingredientName, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Invalid refill quantity");
+        }
+        Ingredient stock = inventory.findStock(ingredientName);
+        if (stock == null) {
+            throw new IllegalArgumentException("The ingredient \"" + ingredientName + "\" is not in the coffee machine");
+        }
+        awaitJournal(inventory.restore(stock, quantity));
+        logger.info("Refilled {} with {}", ingredientName, quantity);
+    }
+
+    /**
+     * Logs only one order every sampleRate, e.g. when replaying many orders;
+     * the default comes from coffee.log.sampleRate.orders.
+     */
+    public void setOrdersLogSampleRate(int sampleRate) {
+        ordersLogger.setSampleRate(sampleRate);
+    }
+
+    public CoffeeMachineMetrics getMetrics() {
+        return metrics;
     }
 
     public Collection<Drink> getDrinks() {
-        return this.drinksMap.values();
+        return catalog.getDrinks();
     }
 
     private void bulkAddIngredients(List<Ingredient> ingredients) {
@@ -67,13 +152,8 @@ public class CoffeeMachine {
         if (!Objects.nonNull(ingredient)) {
             throw new IllegalArgumentException("CoffeeMachine requires a not null ingredient");
         }
-
-        if (ingredientMap.containsKey(ingredient.getName())) {
-            throw new IllegalArgumentException("You are trying to add twice the ingredient: "
-                    + ingredient.getName());
-        }
-        logger.info("Adding {}", ingredient);
-        this.ingredientMap.put(ingredient.getName(), ingredient);
+        inventory.add(ingredient);
+        logger.info("Added {}", ingredient);
     }
 
     protected void loadIngredientsFromMemory() {
@@ -87,31 +167,98 @@ public class CoffeeMachine {
     }
 
     public void addDrink(Drink drink) {
+        addDrink(drink, false);
+    }
+
+    private void addDrink(Drink drink, boolean loaded) {
         if (!Objects.nonNull(drink)) {
             throw new IllegalArgumentException("CoffeeMachine requires a not null drink");
         }
+        synchronized (catalogLock) {
+            catalog.add(drink, loaded);
+            for (CatalogListener listener : catalogListeners) {
+                listener.onDrinkAdded(drink.getName());
+            }
+        }
+        logger.info("Added {}", drink);
+    }
+
+    private void addLoadedDrink(Drink drink) {
+        addDrink(drink, true);
+    }
 
-        if (drinksMap.containsKey(drink.getName())) {
-            throw new IllegalArgumentException("You are trying to add twice the drink: "
-                    + drink.getName());
+    /**
+     * Loads the catalog again and swaps it in. Orders already holding a
+     * recipe complete with it; later lookups see the new catalog. If the
+     * load fails the current catalog is kept.
+     */
+    public void reloadDrinks(DrinksLoader loader) {
+        if (!Objects.nonNull(loader)) {
+            throw new IllegalArgumentException("CoffeeMachine requires a drinks loader");
+        }
+        if (isLazy(loader)) {
+            synchronized (catalogLock) {
+                Catalog next = catalog.reload((DrinksIndex) loader, recipeCacheSize);
+                catalog = next;
+                notifyReloaded(next);
+                logger.info("Reloaded the catalog lazily: {} drinks", next.size());
+            }
+        } else {
+            reloadDrinks(loader.loadDrinks());
+        }
+    }
+
+    private void notifyReloaded(Catalog reloaded) {
+        if (!catalogListeners.isEmpty()) {
+            List<String> names = reloaded.getNameIndex().getNames();
+            for (CatalogListener listener : catalogListeners) {
+                listener.onCatalogReloaded(names);
+            }
+        }
+    }
+
+    public void addCatalogListener(CatalogListener listener) {
+        catalogListeners.add(listener);
+    }
+
+    public void removeCatalogListener(CatalogListener listener) {
+        catalogListeners.remove(listener);
+    }
+
+    private boolean isLazy(DrinksLoader loader) {
+        return recipeCacheSize > 0 && loader instanceof DrinksIndex;
+    }
+
+    /**
+     * The recipe cache of a lazily loaded catalog, null if the catalog was
+     * loaded eagerly.
+     */
+    public RecipeCache getRecipeCache() {
+        return catalog.getCache();
+    }
+
+    void reloadDrinks(List<Drink> drinks) {
+        synchronized (catalogLock) {
+            Catalog next = catalog.reload(drinks);
+            catalog = next;
+            notifyReloaded(next);
+            logger.info("Reloaded the catalog: {} drinks", next.size());
         }
-        logger.info("Adding {}", drink);
-        drinksMap.put(drink.getName(), drink);
     }
 
     protected void loadDrinksFromMemory() {
         logger.info("Loading drinks...");
-        addDrink(new Drink("Espresso")
+        addLoadedDrink(new Drink("Espresso")
                 .addIngredient(new Ingredient("Coffee", 2))
                 .addIngredient(new Ingredient("Water", 2)));                
-        addDrink(new Drink("Coffee")
+        addLoadedDrink(new Drink("Coffee")
                 .addIngredient(new Ingredient("Coffee", 2))
                 .addIngredient(new Ingredient("Water", 4)));
-        addDrink(new Drink("Cappuccino")
+        addLoadedDrink(new Drink("Cappuccino")
                 .addIngredient(new Ingredient("Coffee", 2))
                 .addIngredient(new Ingredient("Water", 2))
                 .addIngredient(new Ingredient("Milk", 2)));
-        addDrink(new Drink("Chocolate")
+        addLoadedDrink(new Drink("Chocolate")
                 .addIngredient(new Ingredient("Chocolate", 2))
                 .addIngredient(new Ingredient("Water", 3)));
         logger.info("Drinks loaded");
@@ -121,41 +268,248 @@ public class CoffeeMachine {
         loadIngredientsFromMemory();
         if (loader == null) {
             loadDrinksFromMemory();
+        } else if (isLazy(loader)) {
+            synchronized (catalogLock) {
+                catalog = Catalog.lazy((DrinksIndex) loader, recipeCacheSize);
+                notifyReloaded(catalog);
+            }
+            logger.info("Indexed {} drinks", catalog.size());
         } else {
-            loadDrinks(loader.loadDrinks());
+            // a streaming loader only finds some corruptions at the end of
+            // the file, so the drinks are published once all of them are read
+            reloadDrinks(loader.loadDrinks());
         }
     }
 
     public List<String> getDrinksNameList() {
-        List<String> drinkNames = new ArrayList<>();
-        drinksMap.values().stream().forEach((drink) -> {
-            drinkNames.add(drink.getName());
-        });
-        return drinkNames;
+        return catalog.getNameIndex().getNames();
+    }
+
+    public boolean containsDrink(String drinkName) {
+        return catalog.contains(drinkName);
+    }
+
+    /**
+     * The catalog drinks whose name starts with the prefix, sorted by name.
+     */
+    public List<String> getDrinkNames(String prefix) {
+        return catalog.getNameIndex().withPrefix(prefix);
+    }
+
+    public DrinkNameIndex getDrinkNameIndex() {
+        return catalog.getNameIndex();
     }
 
     public Drink getDrinkByName(String drinkName) {
-        return new Drink(drinksMap.get(drinkName));
+        Drink drink = catalog.findDrink(drinkName);
+        if (drink == null) {
+            throw new IllegalArgumentException("The drink \"" + drinkName + "\" is not available");
+        }
+        return new Drink(drink);
+    }
+
+    public Recipe getRecipe(String drinkName) {
+        Recipe recipe = catalog.findRecipe(drinkName);
+        if (recipe == null) {
+            throw new IllegalArgumentException("The drink \"" + drinkName + "\" is not available");
+        }
+        return recipe;
+    }
+
+    /**
+     * The favourite of the user with that name, else the catalog drink; null
+     * if there is neither.
+     */
+    public Recipe findRecipe(String userId, String drinkName) {
+        Recipe favourite = favourites.find(userId, drinkName);
+        return favourite != null ? favourite : catalog.findRecipe(drinkName);
+    }
+
+    /**
+     * Same as findRecipe(userId, String), for a name that is still a region
+     * of a parsed line.
+     */
+    public Recipe findRecipe(String userId, CharSequence drinkName) {
+        Recipe favourite = favourites.find(userId, drinkName);
+        if (favourite != null) {
+            return favourite;
+        }
+        Catalog current = catalog;
+        String name = current.getNameIndex().find(drinkName);
+        return name == null ? null : current.findRecipe(name);
+    }
+
+    /**
+     * Saves a recipe as a favourite of the user. Favourites are private to
+     * their user and do not show in the catalog, but cannot take the name of
+     * a catalog drink.
+     */
+    public Recipe saveFavourite(String userId, String favouriteName, Recipe recipe) {
+        if (catalog.contains(favouriteName)) {
+            throw new IllegalArgumentException("You are trying to add twice the drink: " + favouriteName);
+        }
+        Drink favourite = recipe.toDrink();
+        favourite.setName(favouriteName);
+        Recipe saved = Recipe.of(favourite);
+        favourites.save(userId, saved);
+        logger.info("Saved {} for {}", saved, userId);
+        return saved;
+    }
+
+    public FavouritesStore getFavourites() {
+        return favourites;
+    }
+
+    /**
+     * Whether the stock covers the recipe, read without locking; preparing
+     * it can still fail if another order takes the stock first.
+     */
+    public boolean hasStockFor(Recipe recipe) {
+        return inventory.hasStockFor(recipe);
+    }
+
+    /**
+     * Deducts the recipe from the stock. With a journal listening, it only
+     * returns once the deduction is on disk.
+     */
+    public void prepareDrink(Recipe recipe) {
+        ordersLogger.info("CoffeeMachine preparing: {}", recipe.getName());
+        long start = System.nanoTime();
+        CompletableFuture<Void> commit;
+        try {
+            commit = inventory.consumeAll(recipe);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            metrics.recordFailed(recipe.getName(), e instanceof IllegalStateException && isKnownRecipe(recipe)
+                    ? FailureCause.OUT_OF_STOCK : FailureCause.BAD_RECIPE);
+            throw e;
+        }
+        awaitJournal(commit);
+        metrics.recordPrepared(recipe.getName(), System.nanoTime() - start);
     }
 
     public void prepareDrink(Drink drink) {
-        logger.info("CoffeeMachine preparing: " + drink.getName());
-        drink.getIngredients().stream().forEach((ingredient) -> {
-            consumeIngredient(ingredient);
-        });
+        ordersLogger.info("CoffeeMachine preparing: {}", drink.getName());
+        long start = System.nanoTime();
+        CompletableFuture<Void> commit;
+        try {
+            commit = inventory.consumeAll(drink.getIngredients());
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            metrics.recordFailed(drink.getName(), e instanceof IllegalStateException && isKnownRecipe(drink)
+                    ? FailureCause.OUT_OF_STOCK : FailureCause.BAD_RECIPE);
+            throw e;
+        }
+        awaitJournal(commit);
+        metrics.recordPrepared(drink.getName(), System.nanoTime() - start);
+    }
+
+    /**
+     * Waits until the inventory listener has made a change durable; orders
+     * deducted together share the wait.
+     */
+    private static void awaitJournal(CompletableFuture<Void> commit) {
+        if (commit == null) {
+            return;
+        }
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw new UncheckedIOException("Could not journal the stock change",
+                    cause instanceof IOException ? (IOException) cause : new IOException(cause));
+        }
     }
 
-    private void consumeIngredient(Ingredient ingredient) {
-        if (!ingredientMap.containsKey(ingredient.getName())) {
-            throw new IllegalStateException("The ingredient \""
-            + ingredient.getName() + "\" is not in the coffee machine!");
+    private boolean isKnownRecipe(Recipe recipe) {
+        for (int i = 0; i < recipe.getIngredientsCount(); i++) {
+            if (inventory.findStock(recipe.getIngredientName(i)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isKnownRecipe(Drink drink) {
+        for (Ingredient ingredient : drink.getIngredients()) {
+            if (inventory.findStock(ingredient.getName()) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public BatchResult prepareBatch(List<Drink> drinks) {
+        if (!Objects.nonNull(drinks)) {
+            throw new IllegalArgumentException("CoffeeMachine requires a drink list");
+        }
+        while (true) {
+            // quantities seen when the batch is planned: {available, left after the planned orders}
+            Map<String, int[]> planned = new LinkedHashMap<>();
+            List<Drink> fulfilled = new ArrayList<>();
+            List<Drink> rejected = new ArrayList<>();
+            for (Drink drink : drinks) {
+                if (plan(drink, planned)) {
+                    fulfilled.add(drink);
+                } else {
+                    rejected.add(drink);
+                }
+            }
+
+            Ingredient[] stocks = new Ingredient[planned.size()];
+            int[] quantities = new int[planned.size()];
+            int count = 0;
+            for (Map.Entry<String, int[]> entry : planned.entrySet()) {
+                int demand = entry.getValue()[0] - entry.getValue()[1];
+                if (demand > 0) {
+                    stocks[count] = inventory.getStock(entry.getKey());
+                    quantities[count++] = demand;
+                }
+            }
+            CompletableFuture<Void> commit;
+            try {
+                commit = inventory.consumeAll(stocks, quantities, count);
+            } catch (IllegalStateException e) {
+                logger.debug("Stock changed while preparing a batch, planning it again");
+                continue;
+            }
+            awaitJournal(commit);
+            for (Drink drink : fulfilled) {
+                metrics.recordPrepared(drink.getName());
+            }
+            for (Drink drink : rejected) {
+                metrics.recordFailed(drink.getName(),
+                        isKnownRecipe(drink) ? FailureCause.OUT_OF_STOCK : FailureCause.BAD_RECIPE);
+            }
+            BatchResult result = new BatchResult(fulfilled, rejected);
+            logger.info("CoffeeMachine prepared a batch of {} drinks: {}", drinks.size(), result);
+            return result;
+        }
+    }
+
+    private boolean plan(Drink drink, Map<String, int[]> planned) {
+        for (Ingredient ingredient : drink.getIngredients()) {
+            int[] stock = planned.get(ingredient.getName());
+            if (stock == null) {
+                Ingredient available = inventory.findStock(ingredient.getName());
+                if (available == null) {
+                    return false;
+                }
+                int quantity = available.getQuantity();
+                stock = new int[]{quantity, quantity};
+                planned.put(ingredient.getName(), stock);
+            }
+            if (stock[1] < ingredient.getQuantity()) {
+                return false;
+            }
+        }
+        for (Ingredient ingredient : drink.getIngredients()) {
+            planned.get(ingredient.getName())[1] -= ingredient.getQuantity();
         }
-        ingredientMap.get(ingredient.getName()).decreaseQuantity(ingredient.getQuantity());
+        return true;
     }
 
     void loadDrinks(List<Drink> drinks) {
         drinks.stream().forEach((drink) -> {
-            addDrink(drink);
+            addLoadedDrink(drink);
         });
     }
 
@@ -1,18 +1,16 @@
 package com.coffee.core;
 
-import ui.InputHandler;
+import com.coffee.utils.AsyncLogger;
 import com.coffee.utils.Validator;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public final class Drink {
 
-    private static final Logger logger = LoggerFactory.getLogger(InputHandler.class);
+    private static final AsyncLogger logger = AsyncLogger.getLogger(Drink.class);
     
     private final int MAX_NUMBER_OF_INGREDIENTS = 5;
     private final int MAX_SUGAR_QUANTITY = 3;
@@ -57,7 +55,7 @@ public final class Drink {
             throw new IllegalStateException("Cannot add more than five ingredients");
         }
 
-        logger.info("Adding {} to {}", ingredient, this);
+        logger.debug("Adding {} to {}", ingredient, name);
         
         ingredientsMap.put(ingredient.getName(), ingredient);
         return this;
@@ -135,13 +133,13 @@ public final class Drink {
         if (ingredientsMap.containsKey(ingredientName)) {           
             Ingredient sugar = ingredientsMap.get(ingredientName);
             if (sugar.getQuantity() < MAX_SUGAR_QUANTITY) {
-                logger.debug("{} already present in {}. Increasing its quantity", ingredientName, this);
+                logger.debug("{} already present in {}. Increasing its quantity", ingredientName, name);
                 sugar.increaseQuantity(1);
             } else {
                 throw new IllegalStateException("Cannot add more sugar; I will not held responsible for your cholesterol!");
             }
         } else {
-            logger.debug("{} not present in {}. Adding it.", ingredientName, this);
+            logger.debug("{} not present in {}. Adding it.", ingredientName, name);
             addIngredient(new Ingredient(ingredientName, 1));
         }
     }
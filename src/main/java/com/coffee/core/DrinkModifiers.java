@@ -0,0 +1,75 @@
+package com.coffee.core;
+
+/**
+ * Per-order changes to a recipe: strength, milk and sugar. There are only a
+ * few valid combinations, so every one of them is a shared instance.
+ */
+public final class DrinkModifiers {
+
+    public static final int MAX_SUGAR_QUANTITY = 3;
+
+    static final int COUNT = 3 * 2 * (MAX_SUGAR_QUANTITY + 1);
+
+    private static final DrinkModifiers[] ALL = new DrinkModifiers[COUNT];
+
+    static {
+        for (int strength = -1; strength <= 1; strength++) {
+            for (int sugar = 0; sugar <= MAX_SUGAR_QUANTITY; sugar++) {
+                ALL[index(strength, false, sugar)] = new DrinkModifiers(strength, false, sugar);
+                ALL[index(strength, true, sugar)] = new DrinkModifiers(strength, true, sugar);
+            }
+        }
+    }
+
+    public static final DrinkModifiers NONE = of(0, false, 0);
+
+    private final int strength;
+
+    private final boolean milk;
+
+    private final int sugar;
+
+    private DrinkModifiers(int strength, boolean milk, int sugar) {
+        this.strength = strength;
+        this.milk = milk;
+        this.sugar = sugar;
+    }
+
+    public static DrinkModifiers of(int strength, boolean milk, int sugar) {
+        if (strength < -1 || strength > 1) {
+            throw new IllegalArgumentException("The strength can be changed only once");
+        }
+        if (sugar < 0) {
+            throw new IllegalArgumentException("Invalid sugar quantity");
+        }
+        if (sugar > MAX_SUGAR_QUANTITY) {
+            throw new IllegalStateException("Cannot add more sugar; I will not held responsible for your cholesterol!");
+        }
+        return ALL[index(strength, milk, sugar)];
+    }
+
+    private static int index(int strength, boolean milk, int sugar) {
+        return ((strength + 1) * 2 + (milk ? 1 : 0)) * (MAX_SUGAR_QUANTITY + 1) + sugar;
+    }
+
+    int index() {
+        return index(strength, milk, sugar);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public boolean hasMilk() {
+        return milk;
+    }
+
+    public int getSugar() {
+        return sugar;
+    }
+
+    @Override
+    public String toString() {
+        return "strength " + strength + (milk ? ", milk" : "") + ", sugar " + sugar;
+    }
+}
@@ -0,0 +1,97 @@
+package com.coffee.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the drink names of a catalog, in the order the drinks
+ * were added and sorted for prefix queries. Adding a name returns a new
+ * snapshot, so readers never see it change.
+ */
+public final class DrinkNameIndex {
+
+    private final String[] names;
+
+    private final String[] sorted;
+
+    DrinkNameIndex(List<String> names) {
+        this.names = names.toArray(new String[names.size()]);
+        sorted = this.names.clone();
+        Arrays.sort(sorted);
+    }
+
+    private DrinkNameIndex(String[] names, String[] sorted) {
+        this.names = names;
+        this.sorted = sorted;
+    }
+
+    DrinkNameIndex with(String name) {
+        String[] updatedNames = Arrays.copyOf(names, names.length + 1);
+        updatedNames[names.length] = name;
+        int position = Arrays.binarySearch(sorted, name);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        String[] updatedSorted = new String[sorted.length + 1];
+        System.arraycopy(sorted, 0, updatedSorted, 0, position);
+        updatedSorted[position] = name;
+        System.arraycopy(sorted, position, updatedSorted, position + 1, sorted.length - position);
+        return new DrinkNameIndex(updatedNames, updatedSorted);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * The names starting with the prefix, sorted; found with two binary
+     * searches and returned as a view of the snapshot.
+     */
+    public List<String> withPrefix(String prefix) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        return Collections.unmodifiableList(Arrays.asList(sorted).subList(from, to));
+    }
+
+    /**
+     * The indexed name equal to the given characters, or null; lets a parser
+     * look a name up without turning it into a String first.
+     */
+    public String find(CharSequence name) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(sorted[middle], name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return sorted[middle];
+            }
+        }
+        return null;
+    }
+
+    private static int compare(String indexed, CharSequence name) {
+        int length = Math.min(indexed.length(), name.length());
+        for (int i = 0; i < length; i++) {
+            int difference = indexed.charAt(i) - name.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return indexed.length() - name.length();
+    }
+
+    private int lowerBound(String key) {
+        int position = Arrays.binarySearch(sorted, key);
+        return position < 0 ? -position - 1 : position;
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,11 @@
+package com.coffee.core;
+
+/**
+ * Told about every favourite saved in a FavouritesStore, after the save is
+ * applied. Throwing refuses the save, which the store then undoes.
+ */
+public interface FavouritesListener {
+
+    void onSaved(String userId, Recipe favourite);
+
+}
@@ -0,0 +1,122 @@
+package com.coffee.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Drinks saved by each user, kept apart from the catalog. A user's
+ * favourites are a small immutable array of recipes, replaced on every
+ * save, so reads never lock and an idle user costs one map entry.
+ */
+public final class FavouritesStore {
+
+    private final ConcurrentMap<String, Recipe[]> users = new ConcurrentHashMap<>();
+
+    private volatile FavouritesListener listener;
+
+    public void setListener(FavouritesListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Saves the recipe under its name, replacing a favourite of the same
+     * user with that name. The listener is told once the save is applied;
+     * if it refuses the save by throwing, the save is undone, unless a later
+     * save of that user replaced it meanwhile, and the exception is rethrown.
+     */
+    public void save(String userId, Recipe favourite) {
+        if (!Objects.nonNull(userId) || !Objects.nonNull(favourite)) {
+            throw new IllegalArgumentException("A favourite requires a user and a recipe");
+        }
+        Recipe[][] previous = new Recipe[1][];
+        Recipe[] updated = users.compute(userId, (id, current) -> {
+            previous[0] = current;
+            return withFavourite(current, favourite);
+        });
+        FavouritesListener saved = listener;
+        if (saved == null) {
+            return;
+        }
+        try {
+            saved.onSaved(userId, favourite);
+        } catch (RuntimeException e) {
+            if (previous[0] == null) {
+                users.remove(userId, updated);
+            } else {
+                users.replace(userId, updated, previous[0]);
+            }
+            throw e;
+        }
+    }
+
+    private static Recipe[] withFavourite(Recipe[] current, Recipe favourite) {
+        if (current == null) {
+            return new Recipe[]{favourite};
+        }
+        int index = indexOf(current, favourite.getName());
+        Recipe[] updated;
+        if (index >= 0) {
+            updated = current.clone();
+            updated[index] = favourite;
+        } else {
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = favourite;
+        }
+        return updated;
+    }
+
+    private static int indexOf(Recipe[] favourites, CharSequence name) {
+        for (int i = 0; i < favourites.length; i++) {
+            if (favourites[i].getName().contentEquals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The favourite of the user with that name; null if there is none or
+     * the user is not known, e.g. null.
+     */
+    public Recipe find(String userId, CharSequence name) {
+        if (userId == null) {
+            return null;
+        }
+        Recipe[] favourites = users.get(userId);
+        if (favourites == null) {
+            return null;
+        }
+        int index = indexOf(favourites, name);
+        return index < 0 ? null : favourites[index];
+    }
+
+    public List<String> getNames(String userId) {
+        Recipe[] favourites = users.get(userId);
+        if (favourites == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(favourites.length);
+        for (Recipe favourite : favourites) {
+            names.add(favourite.getName());
+        }
+        return names;
+    }
+
+    public int getUsersCount() {
+        return users.size();
+    }
+
+    public void forEach(BiConsumer<String, Recipe> consumer) {
+        users.forEach((userId, favourites) -> {
+            for (Recipe favourite : favourites) {
+                consumer.accept(userId, favourite);
+            }
+        });
+    }
+}
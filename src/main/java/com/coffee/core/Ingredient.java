@@ -1,19 +1,19 @@
 package com.coffee.core;
 
+import com.coffee.utils.AsyncLogger;
 import com.coffee.utils.Validator;
 import java.util.Objects;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public final class Ingredient {
 
-    private static final Logger logger = LoggerFactory.getLogger(Ingredient.class);
+    private static final AsyncLogger logger = AsyncLogger.getLogger(Ingredient.class, "stock", 100);
 
     private String name;
 
-    private int quantity;
+    // written under the monitor, read without it
+    private volatile int quantity;
 
-    private final static int MAX_QUANTITY = 50;
+    public final static int MAX_QUANTITY = 50;
 
     public Ingredient() {
 
@@ -42,23 +42,21 @@ public final class Ingredient {
         return quantity;
     }
 
-    public void setQuantity(int quantity) {
-        if (quantity < 0 || quantity > MAX_QUANTITY) {
-            throw new IllegalArgumentException("Invalid ingredient quantity");
-        }
+    public synchronized void setQuantity(int quantity) {
+        validateQuantity(quantity);
         this.quantity = quantity;
     }
 
     @Override
     public String toString() {
-        return this.name + " [" + quantity + "]";
+        return this.name + " [" + getQuantity() + "]";
     }
 
     @Override
     public int hashCode() {
         int hash = 3;
         hash = 89 * hash + Objects.hashCode(this.name);
-        hash = 89 * hash + this.quantity;
+        hash = 89 * hash + getQuantity();
         return hash;
     }
 
@@ -74,21 +72,34 @@ public final class Ingredient {
         if (!Objects.equals(this.name, other.name)) {
             return false;
         }
-        return this.quantity == other.quantity;
+        return getQuantity() == other.getQuantity();
     }
 
-    void decreaseQuantity(int value) {
-        if (value > quantity) {
+    /**
+     * Changes to the quantity hold the monitor of the ingredient, so that an
+     * order holding the monitors of all its ingredients sees them stay put
+     * between checking and deducting. Reads do not lock.
+     */
+    synchronized void decreaseQuantity(int value) {
+        int current = quantity;
+        if (value > current) {
             throw new IllegalStateException("Cannot use more: " + this + ".");
         }
-        logger.debug("Reducing {} quantity for the ingredient {}", value, this);
-        setQuantity(quantity - value);
-        logger.debug("New quantity for the ingredient is: {}", this);
+        validateQuantity(current - value);
+        quantity = current - value;
+        logger.debug("Reduced the ingredient {} to {}", name, current - value);
+    }
+
+    synchronized void increaseQuantity(int value) {
+        int current = quantity;
+        validateQuantity(current + value);
+        quantity = current + value;
+        logger.debug("Increased the ingredient {} to {}", name, current + value);
     }
 
-    void increaseQuantity(int value) {
-        logger.debug("Increasing {} quantity for the ingredient {}", value, this);
-        setQuantity(quantity + value);
-        logger.debug("New quantity for the ingredient is: {}", this);
+    static void validateQuantity(int quantity) {
+        if (quantity < 0 || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Invalid ingredient quantity");
+        }
     }
 }
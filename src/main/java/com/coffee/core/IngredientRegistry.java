@@ -0,0 +1,45 @@
+package com.coffee.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every ingredient name a dense int id the first time it is seen, so
+ * recipes and stock can be indexed by id instead of hashing names.
+ */
+public final class IngredientRegistry {
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private static volatile String[] names = new String[0];
+
+    private IngredientRegistry() {
+    }
+
+    public static int idOf(String ingredientName) {
+        Integer id = ids.get(ingredientName);
+        if (id != null) {
+            return id;
+        }
+        synchronized (IngredientRegistry.class) {
+            id = ids.get(ingredientName);
+            if (id == null) {
+                String[] updated = Arrays.copyOf(names, names.length + 1);
+                updated[names.length] = ingredientName;
+                id = names.length;
+                names = updated;
+                ids.put(ingredientName, id);
+            }
+            return id;
+        }
+    }
+
+    public static String nameOf(int id) {
+        return names[id];
+    }
+
+    public static int size() {
+        return names.length;
+    }
+}
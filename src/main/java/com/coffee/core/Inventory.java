@@ -0,0 +1,234 @@
+package com.coffee.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ingredients loaded in a coffee machine. Each ingredient is its own counter
+ * with its own monitor, so orders only contend when they use the same
+ * ingredient. The counters are also indexed by ingredient id for the recipe
+ * hot path.
+ */
+final class Inventory {
+
+    private final ConcurrentMap<String, Ingredient> ingredientMap = new ConcurrentHashMap<>();
+
+    private volatile Ingredient[] stockById = new Ingredient[0];
+
+    private volatile InventoryListener listener;
+
+    void setListener(InventoryListener listener) {
+        this.listener = listener;
+    }
+
+    void add(Ingredient ingredient) {
+        if (ingredientMap.putIfAbsent(ingredient.getName(), ingredient) != null) {
+            throw new IllegalArgumentException("You are trying to add twice the ingredient: "
+                    + ingredient.getName());
+        }
+        int id = IngredientRegistry.idOf(ingredient.getName());
+        synchronized (this) {
+            Ingredient[] updated = Arrays.copyOf(stockById, Math.max(stockById.length, id + 1));
+            updated[id] = ingredient;
+            stockById = updated;
+        }
+    }
+
+    /**
+     * Deducts the ingredients of the recipe; returns the future of the
+     * listener that completes once the deduction is durable, or null.
+     */
+    CompletableFuture<Void> consumeAll(Recipe recipe) {
+        Ingredient[] stocks = stockById;
+        int count = recipe.getIngredientsCount();
+        for (int i = 0; i < count; i++) {
+            getStock(stocks, recipe, i);
+        }
+
+        if (count == 1) {
+            getStock(stocks, recipe, 0).decreaseQuantity(recipe.getQuantity(0));
+        } else {
+            consumeInOrder(stocks, recipe, -1);
+        }
+
+        InventoryListener current = listener;
+        CompletableFuture<Void> commit = null;
+        if (current != null) {
+            for (int i = 0; i < count; i++) {
+                commit = combine(commit, current.onConsumed(getStock(stocks, recipe, i), recipe.getQuantity(i)));
+            }
+        }
+        return commit;
+    }
+
+    /**
+     * Changes made together usually share one future, so a new one is only
+     * allocated when they do not.
+     */
+    private static CompletableFuture<Void> combine(CompletableFuture<Void> commit, CompletableFuture<Void> next) {
+        if (commit == null || commit == next) {
+            return next;
+        }
+        return next == null ? commit : CompletableFuture.allOf(commit, next);
+    }
+
+    /**
+     * Takes the monitors of the stocks of the recipe in increasing ingredient
+     * id, so that orders sharing ingredients cannot deadlock, and deducts
+     * only once all of them are held and enough. Nothing is taken and given
+     * back, so a failing order never makes another one see a short stock.
+     */
+    private static void consumeInOrder(Ingredient[] stocks, Recipe recipe, int previousId) {
+        int count = recipe.getIngredientsCount();
+        int next = -1;
+        for (int i = 0; i < count; i++) {
+            int id = recipe.getIngredientId(i);
+            if (id > previousId && (next < 0 || id < next)) {
+                next = id;
+            }
+        }
+        if (next >= 0) {
+            synchronized (stocks[next]) {
+                consumeInOrder(stocks, recipe, next);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            checkQuantity(getStock(stocks, recipe, i), recipe.getQuantity(i));
+        }
+        for (int i = 0; i < count; i++) {
+            getStock(stocks, recipe, i).decreaseQuantity(recipe.getQuantity(i));
+        }
+    }
+
+    private static void checkQuantity(Ingredient stock, int quantity) {
+        if (quantity > stock.getQuantity()) {
+            throw new IllegalStateException("Cannot use more: " + stock + ".");
+        }
+    }
+
+    /**
+     * Whether every ingredient of the recipe is in stock right now. It only
+     * reads the counters, so the answer may be stale by the time an order
+     * consumes them.
+     */
+    boolean hasStockFor(Recipe recipe) {
+        Ingredient[] stocks = stockById;
+        for (int i = 0; i < recipe.getIngredientsCount(); i++) {
+            int id = recipe.getIngredientId(i);
+            if (id >= stocks.length || stocks[id] == null || stocks[id].getQuantity() < recipe.getQuantity(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Ingredient getStock(Ingredient[] stocks, Recipe recipe, int index) {
+        int id = recipe.getIngredientId(index);
+        if (id >= stocks.length || stocks[id] == null) {
+            throw new IllegalStateException("The ingredient \""
+                    + recipe.getIngredientName(index) + "\" is not in the coffee machine!");
+        }
+        return stocks[id];
+    }
+
+    CompletableFuture<Void> consumeAll(Collection<Ingredient> ingredients) {
+        Ingredient[] stocks = new Ingredient[ingredients.size()];
+        int[] quantities = new int[ingredients.size()];
+        int i = 0;
+        for (Ingredient ingredient : ingredients) {
+            stocks[i] = getStock(ingredient.getName());
+            quantities[i++] = ingredient.getQuantity();
+        }
+        return consumeAll(stocks, quantities, i);
+    }
+
+    /**
+     * Deducts all the given quantities or none of them, holding the monitors
+     * of the stocks like consumeAll(Recipe).
+     */
+    CompletableFuture<Void> consumeAll(Ingredient[] stocks, int[] quantities, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = IngredientRegistry.idOf(stocks[i].getName());
+        }
+        consumeInOrder(stocks, quantities, ids, count, -1);
+
+        InventoryListener current = listener;
+        CompletableFuture<Void> commit = null;
+        if (current != null) {
+            for (int i = 0; i < count; i++) {
+                commit = combine(commit, current.onConsumed(stocks[i], quantities[i]));
+            }
+        }
+        return commit;
+    }
+
+    private static void consumeInOrder(Ingredient[] stocks, int[] quantities, int[] ids, int count,
+            int previousId) {
+        int next = -1;
+        for (int i = 0; i < count; i++) {
+            if (ids[i] > previousId && (next < 0 || ids[i] < ids[next])) {
+                next = i;
+            }
+        }
+        if (next >= 0) {
+            synchronized (stocks[next]) {
+                consumeInOrder(stocks, quantities, ids, count, ids[next]);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            checkQuantity(stocks[i], quantities[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            stocks[i].decreaseQuantity(quantities[i]);
+        }
+    }
+
+    CompletableFuture<Void> restore(Ingredient stock, int quantity) {
+        stock.increaseQuantity(quantity);
+        InventoryListener current = listener;
+        return current == null ? null : current.onRestored(stock, quantity);
+    }
+
+    /**
+     * Sets the level of a stock; the listener is told the difference with
+     * the level it replaced.
+     */
+    CompletableFuture<Void> setLevel(Ingredient stock, int quantity) {
+        int previous;
+        synchronized (stock) {
+            previous = stock.getQuantity();
+            stock.setQuantity(quantity);
+        }
+        InventoryListener current = listener;
+        return current == null || quantity == previous ? null : current.onRestored(stock, quantity - previous);
+    }
+
+    Ingredient findStock(String ingredientName) {
+        return ingredientMap.get(ingredientName);
+    }
+
+    Ingredient getStock(String ingredientName) {
+        Ingredient stock = findStock(ingredientName);
+        if (stock == null) {
+            throw new IllegalStateException("The ingredient \""
+                    + ingredientName + "\" is not in the coffee machine!");
+        }
+        return stock;
+    }
+
+    Collection<Ingredient> getIngredients() {
+        return Collections.unmodifiableCollection(ingredientMap.values());
+    }
+
+    Map<String, Ingredient> asMap() {
+        return Collections.unmodifiableMap(ingredientMap);
+    }
+}
@@ -0,0 +1,28 @@
+package com.coffee.core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Told about every change to the stock of a coffee machine, once per
+ * ingredient. It is called on the thread that changed the stock, e.g. the
+ * one that prepared the order, so it must be quick.
+ *
+ * A listener that makes the changes durable returns a future that completes
+ * once the change is on disk; the machine waits for it before reporting the
+ * change as done. Others return null.
+ */
+public interface InventoryListener {
+
+    /**
+     * Units taken from the stock by a successful order.
+     */
+    CompletableFuture<Void> onConsumed(Ingredient stock, int quantity);
+
+    /**
+     * Units put back into the stock, e.g. by a refill; negative when a level
+     * is set lower than it was.
+     */
+    default CompletableFuture<Void> onRestored(Ingredient stock, int quantity) {
+        return null;
+    }
+}
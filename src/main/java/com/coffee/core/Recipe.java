@@ -0,0 +1,194 @@
+package com.coffee.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable view of a drink. Customised recipes are built once per
+ * combination of modifiers and then shared by every order asking for it.
+ */
+public final class Recipe {
+
+    private static final int MILK = IngredientRegistry.idOf("Milk");
+    private static final int SUGAR = IngredientRegistry.idOf("Sugar");
+    private static final int MAX_NUMBER_OF_INGREDIENTS = 5;
+
+    private final String name;
+
+    private final int[] ingredientIds;
+
+    private final int[] quantities;
+
+    private final DrinkModifiers modifiers;
+
+    private volatile AtomicReferenceArray<Recipe> variants;
+
+    private Recipe(String name, int[] ingredientIds, int[] quantities, DrinkModifiers modifiers) {
+        this.name = name;
+        this.ingredientIds = ingredientIds;
+        this.quantities = quantities;
+        this.modifiers = modifiers;
+    }
+
+    public static Recipe of(Drink drink) {
+        if (!Objects.nonNull(drink)) {
+            throw new IllegalArgumentException("A recipe requires a not null drink");
+        }
+        int[] ids = new int[drink.getIngredients().size()];
+        int[] quantities = new int[ids.length];
+        int i = 0;
+        for (Ingredient ingredient : drink.getIngredients()) {
+            ids[i] = IngredientRegistry.idOf(ingredient.getName());
+            quantities[i++] = ingredient.getQuantity();
+        }
+        return new Recipe(drink.getName(), ids, quantities, DrinkModifiers.NONE);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DrinkModifiers getModifiers() {
+        return modifiers;
+    }
+
+    public int getIngredientsCount() {
+        return ingredientIds.length;
+    }
+
+    public int getIngredientId(int index) {
+        return ingredientIds[index];
+    }
+
+    public String getIngredientName(int index) {
+        return IngredientRegistry.nameOf(ingredientIds[index]);
+    }
+
+    public int getQuantity(int index) {
+        return quantities[index];
+    }
+
+    public Recipe customize(DrinkModifiers modifiers) {
+        if (modifiers == DrinkModifiers.NONE) {
+            return this;
+        }
+        AtomicReferenceArray<Recipe> cache = variants;
+        if (cache == null) {
+            synchronized (this) {
+                cache = variants;
+                if (cache == null) {
+                    cache = new AtomicReferenceArray<>(DrinkModifiers.COUNT);
+                    variants = cache;
+                }
+            }
+        }
+        Recipe variant = cache.get(modifiers.index());
+        if (variant == null) {
+            variant = apply(modifiers);
+            if (!cache.compareAndSet(modifiers.index(), null, variant)) {
+                variant = cache.get(modifiers.index());
+            }
+        }
+        return variant;
+    }
+
+    private Recipe apply(DrinkModifiers modifiers) {
+        int[] ids = Arrays.copyOf(ingredientIds, ingredientIds.length + 2);
+        int[] amounts = Arrays.copyOf(quantities, quantities.length + 2);
+        int count = ingredientIds.length;
+
+        if (modifiers.getStrength() != 0) {
+            if (count == 0 || amounts[0] + modifiers.getStrength() < 0) {
+                throw new IllegalStateException("Cannot change the strength of " + this);
+            }
+            amounts[0] += modifiers.getStrength();
+            Ingredient.validateQuantity(amounts[0]);
+        }
+
+        if (modifiers.hasMilk()) {
+            if (indexOf(MILK) >= 0) {
+                throw new IllegalStateException("The drink has already milk!");
+            }
+            count = append(ids, amounts, count, MILK, 1);
+        }
+
+        if (modifiers.getSugar() > 0) {
+            int sugar = indexOf(SUGAR);
+            if (sugar < 0) {
+                count = append(ids, amounts, count, SUGAR, modifiers.getSugar());
+            } else if (amounts[sugar] + modifiers.getSugar() > DrinkModifiers.MAX_SUGAR_QUANTITY) {
+                throw new IllegalStateException("Cannot add more sugar; I will not held responsible for your cholesterol!");
+            } else {
+                amounts[sugar] += modifiers.getSugar();
+            }
+        }
+
+        return new Recipe(name, Arrays.copyOf(ids, count), Arrays.copyOf(amounts, count), modifiers);
+    }
+
+    private static int append(int[] ids, int[] amounts, int count, int ingredientId, int quantity) {
+        if (count >= MAX_NUMBER_OF_INGREDIENTS) {
+            throw new IllegalStateException("Cannot add more than five ingredients");
+        }
+        ids[count] = ingredientId;
+        amounts[count] = quantity;
+        return count + 1;
+    }
+
+    private int indexOf(int ingredientId) {
+        for (int i = 0; i < ingredientIds.length; i++) {
+            if (ingredientIds[i] == ingredientId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public Drink toDrink() {
+        Drink drink = new Drink(name);
+        for (int i = 0; i < ingredientIds.length; i++) {
+            drink.addIngredient(new Ingredient(getIngredientName(i), quantities[i]));
+        }
+        return drink;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append(" [");
+        for (int i = 0; i < ingredientIds.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(getIngredientName(i)).append(" [").append(quantities[i]).append("]");
+        }
+        return sb.append("]").toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 43 * hash + Objects.hashCode(this.name);
+        hash = 43 * hash + Arrays.hashCode(this.ingredientIds);
+        hash = 43 * hash + Arrays.hashCode(this.quantities);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Recipe other = (Recipe) obj;
+        if (!Objects.equals(this.name, other.name)) {
+            return false;
+        }
+        if (!Arrays.equals(this.ingredientIds, other.ingredientIds)) {
+            return false;
+        }
+        return Arrays.equals(this.quantities, other.quantities);
+    }
+}
@@ -0,0 +1,80 @@
+package com.coffee.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the recipes materialised from a lazy catalog. The least
+ * recently used recipe is evicted once the capacity is reached.
+ */
+public final class RecipeCache {
+
+    private final int capacity;
+
+    private final Map<String, Recipe> recipes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public RecipeCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid recipe cache capacity");
+        }
+        this.capacity = capacity;
+        recipes = new LinkedHashMap<String, Recipe>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Recipe> eldest) {
+                return size() > RecipeCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached recipe, or materialises it outside the lock. If two
+     * threads miss at the same time the first recipe cached is the one kept.
+     */
+    Recipe get(String name, Function<String, Recipe> materialiser) {
+        synchronized (recipes) {
+            Recipe recipe = recipes.get(name);
+            if (recipe != null) {
+                hits.increment();
+                return recipe;
+            }
+        }
+        misses.increment();
+        Recipe recipe = materialiser.apply(name);
+        if (recipe == null) {
+            return null;
+        }
+        synchronized (recipes) {
+            Recipe cached = recipes.putIfAbsent(name, recipe);
+            return cached != null ? cached : recipe;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        synchronized (recipes) {
+            return recipes.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return size() + "/" + capacity + " recipes, " + getHits() + " hits, " + getMisses() + " misses";
+    }
+}
@@ -0,0 +1,116 @@
+package com.coffee.dao;
+
+import static com.coffee.dao.BinaryCatalogFormat.*;
+
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a binary catalog from any other drinks source, e.g.
+ * "BinaryCatalogConverter drinks.properties drinks.catalog".
+ *
+ * The catalog is written to a temporary file next to the target, synced and
+ * then renamed over it, so a machine mapping the old catalog never sees a
+ * half written one.
+ */
+public class BinaryCatalogConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryCatalogConverter.class);
+
+    public static void convert(DrinksLoader source, File target) throws IOException {
+        List<Drink> drinks = source.loadDrinks();
+
+        Map<String, Integer> ingredients = new LinkedHashMap<>();
+        for (Drink drink : drinks) {
+            for (Ingredient ingredient : drink.getIngredients()) {
+                ingredients.putIfAbsent(ingredient.getName(), ingredients.size());
+            }
+        }
+        if (ingredients.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many ingredients for a binary catalog");
+        }
+
+        int tableSize = 0;
+        for (String name : ingredients.keySet()) {
+            tableSize += 1 + name.length();
+        }
+
+        File temporary = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+        try {
+            FileOutputStream file = new FileOutputStream(temporary);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                write(out, drinks, ingredients, tableSize);
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temporary.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+        logger.info("Wrote {} drinks and {} ingredients to {}", drinks.size(), ingredients.size(), target);
+    }
+
+    private static void write(DataOutputStream out, List<Drink> drinks, Map<String, Integer> ingredients,
+            int tableSize) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(ingredients.size());
+        out.writeShort(RECORD_SIZE);
+        out.writeShort(0);
+        out.writeInt(drinks.size());
+        out.writeInt(HEADER_SIZE + tableSize);
+
+        for (String name : ingredients.keySet()) {
+            writeName(out, name, name.length());
+        }
+
+        for (Drink drink : drinks) {
+            writeName(out, drink.getName(), NAME_SIZE);
+            out.writeByte(drink.getIngredients().size());
+            int slots = 0;
+            for (Ingredient ingredient : drink.getIngredients()) {
+                out.writeShort(ingredients.get(ingredient.getName()));
+                out.writeByte(ingredient.getQuantity());
+                slots++;
+            }
+            for (; slots < MAX_INGREDIENTS; slots++) {
+                out.writeShort(0);
+                out.writeByte(0);
+            }
+        }
+    }
+
+    private static void writeName(DataOutputStream out, String name, int size) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > NAME_SIZE) {
+            throw new IllegalArgumentException("Name too long for a binary catalog: " + name);
+        }
+        out.writeByte(bytes.length);
+        out.write(bytes);
+        for (int i = bytes.length; i < size; i++) {
+            out.writeByte(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryCatalogConverter <drinks.properties> <drinks.catalog>");
+            System.exit(1);
+        }
+        convert(new StreamingDrinksLoader(new File(args[0])), new File(args[1]));
+    }
+}
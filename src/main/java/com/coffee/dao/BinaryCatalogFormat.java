@@ -0,0 +1,27 @@
+package com.coffee.dao;
+
+/**
+ * Layout of a binary drinks catalog (big endian).
+ *
+ * Header: magic (int), version (short), ingredients count (short), record
+ * size (short), reserved (short), drinks count (int), records offset (int).
+ * Then the ingredient table, each name as a length byte followed by ASCII
+ * bytes, and finally one fixed-width record per drink: name length (byte),
+ * name (31 bytes, zero padded), ingredients count (byte) and five slots of
+ * ingredient table index (short) and quantity (byte).
+ */
+final class BinaryCatalogFormat {
+
+    static final int MAGIC = 0x43464354;
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 20;
+
+    static final int NAME_SIZE = 31;
+    static final int MAX_INGREDIENTS = 5;
+    static final int SLOT_SIZE = 3;
+    static final int RECORD_SIZE = 1 + NAME_SIZE + 1 + MAX_INGREDIENTS * SLOT_SIZE;
+
+    private BinaryCatalogFormat() {
+    }
+}
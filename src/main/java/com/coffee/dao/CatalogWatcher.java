@@ -0,0 +1,125 @@
+package com.coffee.dao;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches catalog files and runs a reload once they stop changing. Editors
+ * and converters usually write a file in several steps, so changes are
+ * collected until the files have been quiet for the settle delay.
+ */
+public class CatalogWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogWatcher.class);
+
+    public static final long DEFAULT_SETTLE_MILLIS = 200;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Set<Path>> watchedFiles = new HashMap<>();
+
+    private final Runnable onChange;
+
+    private final long settleMillis;
+
+    private final Thread thread;
+
+    public CatalogWatcher(List<File> files, Runnable onChange) throws IOException {
+        this(files, onChange, DEFAULT_SETTLE_MILLIS);
+    }
+
+    public CatalogWatcher(List<File> files, Runnable onChange, long settleMillis) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("CatalogWatcher requires at least a file");
+        }
+        if (onChange == null) {
+            throw new IllegalArgumentException("CatalogWatcher requires a change callback");
+        }
+        this.onChange = onChange;
+        this.settleMillis = settleMillis;
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            Map<Path, WatchKey> keysByDirectory = new HashMap<>();
+            for (File file : files) {
+                Path path = file.getAbsoluteFile().toPath();
+                Path directory = path.getParent();
+                WatchKey key = keysByDirectory.get(directory);
+                if (key == null) {
+                    key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    keysByDirectory.put(directory, key);
+                    watchedFiles.put(key, new HashSet<>());
+                }
+                watchedFiles.get(key).add(path.getFileName());
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        thread = new Thread(this::watch, "catalog-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isCatalogChanged(watchService.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watchService.poll(settleMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isCatalogChanged(key);
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Catalog watcher stopped");
+        }
+    }
+
+    private boolean isCatalogChanged(WatchKey key) {
+        boolean changed = false;
+        Set<Path> files = watchedFiles.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || files.contains((Path) event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        logger.info("Drinks catalog changed, reloading");
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            logger.error("Could not reload the drinks catalog, keeping the current one", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
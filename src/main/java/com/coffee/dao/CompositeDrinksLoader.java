@@ -0,0 +1,93 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads several catalogs in parallel on a fork-join pool and merges them in
+ * the order the loaders were given, whatever order they finish in.
+ */
+public class CompositeDrinksLoader implements DrinksLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompositeDrinksLoader.class);
+
+    public enum ConflictPolicy {
+        /** The drink from the earliest catalog is kept. */
+        FIRST_WINS,
+        /** The drink from the latest catalog replaces the earlier ones. */
+        LAST_WINS,
+        /** Loading fails if a drink is defined twice. */
+        FAIL
+    }
+
+    private final List<DrinksLoader> loaders;
+
+    private final ConflictPolicy conflictPolicy;
+
+    private final ForkJoinPool pool;
+
+    public CompositeDrinksLoader(List<DrinksLoader> loaders, ConflictPolicy conflictPolicy) {
+        this(loaders, conflictPolicy, ForkJoinPool.commonPool());
+    }
+
+    public CompositeDrinksLoader(List<DrinksLoader> loaders, ConflictPolicy conflictPolicy, ForkJoinPool pool) {
+        if (loaders == null || loaders.isEmpty()) {
+            throw new IllegalArgumentException("CompositeDrinksLoader requires at least one loader");
+        }
+        if (conflictPolicy == null || pool == null) {
+            throw new IllegalArgumentException("CompositeDrinksLoader requires a conflict policy and a pool");
+        }
+        this.loaders = new ArrayList<>(loaders);
+        this.conflictPolicy = conflictPolicy;
+        this.pool = pool;
+    }
+
+    @Override
+    public List<Drink> loadDrinks() {
+        List<List<Drink>> catalogs;
+        try {
+            catalogs = pool.submit(() -> loaders.parallelStream()
+                    .map(DrinksLoader::loadDrinks)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the drinks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Could not load the drinks", e.getCause());
+        }
+        return merge(catalogs);
+    }
+
+    private List<Drink> merge(List<List<Drink>> catalogs) {
+        Map<String, Drink> merged = new LinkedHashMap<>();
+        for (List<Drink> catalog : catalogs) {
+            for (Drink drink : catalog) {
+                Drink existing = merged.get(drink.getName());
+                if (existing == null) {
+                    merged.put(drink.getName(), drink);
+                } else if (conflictPolicy == ConflictPolicy.LAST_WINS) {
+                    logger.warn("{} replaces {}", drink, existing);
+                    merged.put(drink.getName(), drink);
+                } else if (conflictPolicy == ConflictPolicy.FIRST_WINS) {
+                    logger.warn("{} ignored, keeping {}", drink, existing);
+                } else {
+                    throw new IllegalStateException("The drink " + drink.getName()
+                            + " is defined in more than one catalog");
+                }
+            }
+        }
+        logger.info("Merged {} catalogs into {} drinks", catalogs.size(), merged.size());
+        return new ArrayList<>(merged.values());
+    }
+}
@@ -0,0 +1,17 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+
+/**
+ * A catalog that can be read one drink at a time, by position, without
+ * loading the others.
+ */
+public interface DrinksIndex {
+
+    int size();
+
+    String getName(int index);
+
+    Drink getDrink(int index);
+
+}
@@ -0,0 +1,15 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface DrinksLoader {
+
+    List<Drink> loadDrinks();
+
+    default void forEachDrink(Consumer<Drink> consumer) {
+        loadDrinks().forEach(consumer);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.coffee.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class DrinksLoaders {
+
+    public static final String BINARY_CATALOG_EXTENSION = ".catalog";
+
+    private DrinksLoaders() {
+    }
+
+    /**
+     * Picks the loader from the file extension: binary catalogs are mapped,
+     * anything else is streamed as a properties file.
+     */
+    public static DrinksLoader forFile(File file) throws IOException {
+        if (file.getName().endsWith(BINARY_CATALOG_EXTENSION)) {
+            return new MappedCatalogDrinksLoader(file);
+        }
+        return new StreamingDrinksLoader(file);
+    }
+
+    public static DrinksLoader forFiles(List<File> files, CompositeDrinksLoader.ConflictPolicy conflictPolicy)
+            throws IOException {
+        if (files.size() == 1) {
+            return forFile(files.get(0));
+        }
+        List<DrinksLoader> loaders = new ArrayList<>(files.size());
+        for (File file : files) {
+            loaders.add(forFile(file));
+        }
+        return new CompositeDrinksLoader(loaders, conflictPolicy);
+    }
+}
@@ -0,0 +1,122 @@
+package com.coffee.dao;
+
+import static com.coffee.dao.JournalRecords.readString;
+import static com.coffee.dao.JournalRecords.writeString;
+
+import com.coffee.core.Drink;
+import com.coffee.core.FavouritesListener;
+import com.coffee.core.FavouritesStore;
+import com.coffee.core.Ingredient;
+import com.coffee.core.Recipe;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable copy of a favourites store, kept in a group commit journal.
+ * Saving only queues the record, so it does not wait for the disk; the
+ * snapshot written on compaction is taken from the store itself.
+ */
+public class FavouritesJournal implements FavouritesListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FavouritesJournal.class);
+
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1 << 20;
+
+    private static final byte SHARED_RECORD_VERSION = 1;
+
+    private static final byte RECORD_VERSION = 2;
+
+    private final FavouritesStore store;
+
+    private final GroupCommitLog log;
+
+    public FavouritesJournal(File directory, FavouritesStore store) {
+        this(directory, store, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public FavouritesJournal(File directory, FavouritesStore store, long compactionThreshold) {
+        if (store == null) {
+            throw new IllegalArgumentException("FavouritesJournal requires a favourites store");
+        }
+        this.store = store;
+        log = new GroupCommitLog(new File(directory, "favourites.journal"),
+                new File(directory, "favourites.snapshot"), compactionThreshold, this::snapshot);
+    }
+
+    /**
+     * Replays the saved favourites into the store and starts journaling its
+     * saves. Favourites saved before they were kept per user are given to
+     * sharedUserId.
+     */
+    public void open(String sharedUserId) throws IOException {
+        log.open(record -> replay(record, sharedUserId));
+        store.setListener(this);
+        logger.info("Recovered the favourites of {} users", store.getUsersCount());
+    }
+
+    @Override
+    public void onSaved(String userId, Recipe favourite) {
+        log.append(encode(userId, favourite)).whenComplete((saved, e) -> {
+            if (e != null) {
+                logger.error("Could not persist the favourite drink {} of {}", favourite.getName(), userId, e);
+            }
+        });
+    }
+
+    private List<byte[]> snapshot() {
+        List<byte[]> records = new ArrayList<>();
+        store.forEach((userId, favourite) -> records.add(encode(userId, favourite)));
+        return records;
+    }
+
+    private void replay(ByteBuffer record, String sharedUserId) {
+        byte version = record.get();
+        String userId;
+        if (version == RECORD_VERSION) {
+            userId = readString(record);
+        } else if (version == SHARED_RECORD_VERSION) {
+            userId = sharedUserId;
+        } else {
+            throw new IllegalStateException("Unsupported favourite record version " + version);
+        }
+        Drink drink = new Drink(readString(record));
+        int ingredients = record.get();
+        for (int i = 0; i < ingredients; i++) {
+            String name = readString(record);
+            drink.addIngredient(new Ingredient(name, record.get()));
+        }
+        store.save(userId, Recipe.of(drink));
+    }
+
+    static byte[] encode(String userId, Recipe favourite) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            writeString(out, userId);
+            writeString(out, favourite.getName());
+            out.writeByte(favourite.getIngredientsCount());
+            for (int i = 0; i < favourite.getIngredientsCount(); i++) {
+                writeString(out, favourite.getIngredientName(i));
+                out.writeByte(favourite.getQuantity(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.setListener(null);
+        log.close();
+    }
+}
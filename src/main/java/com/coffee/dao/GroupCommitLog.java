@@ -0,0 +1,309 @@
+package com.coffee.dao;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of opaque records backed by a snapshot.
+ *
+ * Each record is framed as its length, the CRC32 of its bytes and the bytes
+ * themselves. Appends are queued and a single flusher thread writes every
+ * queued record with one write and one fsync, so concurrent writers share
+ * the cost of a sync. Once the journal grows past the compaction threshold
+ * the snapshot supplier is asked for the records that describe the whole
+ * state, they replace the snapshot and the journal starts again empty.
+ *
+ * Records are replayed again after a crash during compaction, so applying a
+ * record twice must give the same state.
+ */
+public class GroupCommitLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitLog.class);
+
+    private static final int FRAME_HEADER = 8;
+
+    public static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final File journal;
+
+    private final File snapshot;
+
+    private final long compactionThreshold;
+
+    private final Supplier<? extends Collection<byte[]>> snapshotSupplier;
+
+    private final Object lock = new Object();
+
+    private List<Supplier<byte[]>> pendingRecords = new ArrayList<>();
+
+    private List<CompletableFuture<Void>> pendingCommits = new ArrayList<>();
+
+    private FileChannel channel;
+
+    private Thread flusher;
+
+    private boolean closed;
+
+    public GroupCommitLog(File journal, File snapshot, long compactionThreshold,
+            Supplier<? extends Collection<byte[]>> snapshotSupplier) {
+        if (journal == null || snapshot == null || snapshotSupplier == null) {
+            throw new IllegalArgumentException("GroupCommitLog requires a journal, a snapshot and a snapshot supplier");
+        }
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid compaction threshold");
+        }
+        this.journal = journal;
+        this.snapshot = snapshot;
+        this.compactionThreshold = compactionThreshold;
+        this.snapshotSupplier = snapshotSupplier;
+    }
+
+    /**
+     * Replays the snapshot and then the journal, and opens the journal for
+     * appending. A torn or corrupted record ends the journal: it and anything
+     * after it are discarded.
+     */
+    public void open(Consumer<ByteBuffer> replay) throws IOException {
+        synchronized (lock) {
+            if (channel != null || closed) {
+                throw new IllegalStateException("The journal " + journal + " is already open");
+            }
+            if (snapshot.isFile()) {
+                long valid = read(snapshot, replay);
+                if (valid != snapshot.length()) {
+                    throw new IOException("Corrupted snapshot " + snapshot);
+                }
+            }
+            channel = FileChannel.open(journal.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long valid = read(journal, replay);
+            if (valid < channel.size()) {
+                logger.warn("Discarding {} bytes at the end of {}", channel.size() - valid, journal);
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            channel.position(valid);
+            flusher = new Thread(this::flush, "journal-" + journal.getName());
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private static long read(File file, Consumer<ByteBuffer> replay) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= FRAME_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > MAX_RECORD_SIZE || length > buffer.remaining()) {
+                return start;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            replay.accept(record.asReadOnlyBuffer());
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Queues a record; the future completes once it is on disk.
+     */
+    public CompletableFuture<Void> append(byte[] record) {
+        checkSize(record);
+        return append(() -> record);
+    }
+
+    /**
+     * Queues a record that the flusher only encodes when it writes the next
+     * batch, so that callers can keep adding to it until then; a null record
+     * writes nothing. The future completes once the batch is on disk.
+     */
+    public CompletableFuture<Void> append(Supplier<byte[]> record) {
+        CompletableFuture<Void> commit = new CompletableFuture<>();
+        synchronized (lock) {
+            if (channel == null || closed) {
+                throw new IllegalStateException("The journal " + journal + " is not open");
+            }
+            pendingRecords.add(record);
+            pendingCommits.add(commit);
+            lock.notifyAll();
+        }
+        return commit;
+    }
+
+    private static void checkSize(byte[] record) {
+        if (record.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal record too big: " + record.length + " bytes");
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            List<Supplier<byte[]>> queued;
+            List<CompletableFuture<Void>> queuedCommits;
+            synchronized (lock) {
+                while (pendingRecords.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingRecords.isEmpty()) {
+                    return;
+                }
+                queued = pendingRecords;
+                queuedCommits = pendingCommits;
+                pendingRecords = new ArrayList<>();
+                pendingCommits = new ArrayList<>();
+            }
+            List<byte[]> records = new ArrayList<>(queued.size());
+            List<CompletableFuture<Void>> commits = new ArrayList<>(queuedCommits.size());
+            for (int i = 0; i < queued.size(); i++) {
+                try {
+                    byte[] record = queued.get(i).get();
+                    if (record != null) {
+                        checkSize(record);
+                        records.add(record);
+                    }
+                    commits.add(queuedCommits.get(i));
+                } catch (RuntimeException e) {
+                    queuedCommits.get(i).completeExceptionally(e);
+                }
+            }
+            try {
+                append(channel, records);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not write to the journal {}", journal, e);
+                commits.forEach(commit -> commit.completeExceptionally(e));
+                continue;
+            }
+            commits.forEach(commit -> commit.complete(null));
+            try {
+                if (channel.size() > compactionThreshold) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Could not compact the journal {}", journal, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the records at the end of the file and syncs it. If the write
+     * fails, the file is cut back so that later records are not stuck behind
+     * a torn one.
+     */
+    private static void append(FileChannel channel, Collection<byte[]> records) throws IOException {
+        int size = 0;
+        for (byte[] record : records) {
+            size += FRAME_HEADER + record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : records) {
+            crc.reset();
+            crc.update(record, 0, record.length);
+            buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        }
+        buffer.flip();
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the records of the snapshot supplier to a new snapshot and
+     * empties the journal. Runs on the flusher thread, so no append reaches
+     * the journal while it happens.
+     */
+    private void compact() throws IOException {
+        Collection<byte[]> records = snapshotSupplier.get();
+        File temporary = new File(snapshot.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            append(out, records);
+        }
+        Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        // The rename must be durable before the journal it replaces is lost,
+        // where the platform lets a directory be synced at all
+        try (FileChannel directory = FileChannel.open(snapshot.getAbsoluteFile().getParentFile().toPath(),
+                StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not sync the directory of {}", snapshot, e);
+        }
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        logger.info("Compacted {} into {} records", journal, records.size());
+    }
+
+    public long getJournalSize() {
+        try {
+            synchronized (lock) {
+                return channel == null ? journal.length() : channel.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for the queued records to be written and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread thread;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = flusher;
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
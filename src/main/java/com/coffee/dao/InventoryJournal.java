@@ -0,0 +1,278 @@
+package com.coffee.dao;
+
+import static com.coffee.dao.JournalRecords.readString;
+import static com.coffee.dao.JournalRecords.writeString;
+
+import com.coffee.core.Ingredient;
+import com.coffee.core.IngredientRegistry;
+import com.coffee.core.InventoryListener;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Journal of the stock of a coffee machine. Orders and refills only add
+ * their change to a per-ingredient counter; the journal flusher turns the
+ * counters into one record with a sequence number per batch, so orders on
+ * different ingredients never wait for each other or for the log. The
+ * journal keeps its own copy of the levels so that a checkpoint always
+ * matches the records before it. On startup the last checkpoint is loaded
+ * and only the records after it are applied, so a record replayed twice
+ * after a crash is not counted twice.
+ *
+ * Every change gets the future of the batch that will carry it, which
+ * completes once the batch is synced; the coffee machine waits for it before
+ * reporting an order as prepared, so one fsync covers all the orders made
+ * while the previous batch was being written.
+ */
+public class InventoryJournal implements InventoryListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryJournal.class);
+
+    public static final long DEFAULT_CHECKPOINT_THRESHOLD = 1 << 20;
+
+    private static final byte RECORD_VERSION = 1;
+
+    private static final byte CONSUMED = 1;
+
+    private static final byte LEVELS = 2;
+
+    private final Map<String, Integer> levels = new LinkedHashMap<>();
+
+    private long sequence;
+
+    private long checkpointSequence = -1;
+
+    // units consumed since the last record, indexed by ingredient id; negative after a refill
+    private volatile AtomicInteger[] consumed = new AtomicInteger[0];
+
+    // completes once the next record is on disk; null until a change queues that record
+    private final AtomicReference<CompletableFuture<Void>> queuedCommit = new AtomicReference<>();
+
+    private final GroupCommitLog log;
+
+    public InventoryJournal(File directory) {
+        this(directory, DEFAULT_CHECKPOINT_THRESHOLD);
+    }
+
+    public InventoryJournal(File directory, long checkpointThreshold) {
+        log = new GroupCommitLog(new File(directory, "inventory.journal"),
+                new File(directory, "inventory.checkpoint"), checkpointThreshold, this::checkpoint);
+    }
+
+    /**
+     * Recovers the stock levels and opens the journal; empty if nothing was
+     * ever recorded.
+     */
+    public Map<String, Integer> open() throws IOException {
+        log.open(this::replay);
+        synchronized (levels) {
+            logger.info("Recovered the stock of {} ingredients at record {}", levels.size(), sequence);
+            return Collections.unmodifiableMap(new LinkedHashMap<>(levels));
+        }
+    }
+
+    /**
+     * Records the absolute levels of the given stocks, e.g. after filling
+     * the machine. The stocks must not change meanwhile; refills of a
+     * machine in service reach the journal through onRestored.
+     */
+    public CompletableFuture<Void> recordLevels(Collection<Ingredient> stocks) {
+        Map<String, Integer> recorded = new LinkedHashMap<>();
+        for (Ingredient stock : stocks) {
+            recorded.put(stock.getName(), stock.getQuantity());
+        }
+        synchronized (levels) {
+            sequence++;
+            levels.putAll(recorded);
+            return log.append(encodeLevels(sequence, recorded));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> onConsumed(Ingredient stock, int quantity) {
+        return change(stock, quantity);
+    }
+
+    @Override
+    public CompletableFuture<Void> onRestored(Ingredient stock, int quantity) {
+        return change(stock, -quantity);
+    }
+
+    /**
+     * Adds the change to its counter and returns the commit of the record
+     * that will carry it. The counter is updated before the commit is read
+     * and the flusher takes the commit before reading the counters, so a
+     * change is never handed the commit of a record that misses it.
+     */
+    private CompletableFuture<Void> change(Ingredient stock, int consumedQuantity) {
+        int id = IngredientRegistry.idOf(stock.getName());
+        AtomicInteger[] counters = consumed;
+        AtomicInteger counter = id < counters.length ? counters[id] : null;
+        if (counter == null) {
+            counter = counter(id);
+        }
+        counter.addAndGet(consumedQuantity);
+        while (true) {
+            CompletableFuture<Void> commit = queuedCommit.get();
+            if (commit != null) {
+                return commit;
+            }
+            commit = new CompletableFuture<>();
+            if (queuedCommit.compareAndSet(null, commit)) {
+                queue(commit);
+                return commit;
+            }
+        }
+    }
+
+    private void queue(CompletableFuture<Void> commit) {
+        try {
+            log.append(this::encodeConsumed).whenComplete((committed, e) -> {
+                if (e == null) {
+                    commit.complete(null);
+                } else {
+                    logger.error("Could not journal a stock change", e);
+                    commit.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            queuedCommit.compareAndSet(commit, null);
+            commit.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private synchronized AtomicInteger counter(int id) {
+        AtomicInteger[] counters = consumed;
+        if (id < counters.length && counters[id] != null) {
+            return counters[id];
+        }
+        AtomicInteger[] updated = Arrays.copyOf(counters, Math.max(counters.length, id + 1));
+        updated[id] = new AtomicInteger();
+        consumed = updated;
+        return updated[id];
+    }
+
+    /**
+     * Takes the counters into a record; runs on the flusher thread. A change
+     * made while it runs is either in this record or queues the next one.
+     */
+    private byte[] encodeConsumed() {
+        queuedCommit.set(null);
+        AtomicInteger[] counters = consumed;
+        int[] quantities = new int[counters.length];
+        int count = 0;
+        for (int id = 0; id < counters.length; id++) {
+            if (counters[id] != null && (quantities[id] = counters[id].getAndSet(0)) != 0) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + count * 16);
+        synchronized (levels) {
+            sequence++;
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(RECORD_VERSION);
+                out.writeByte(CONSUMED);
+                out.writeLong(sequence);
+                out.writeShort(count);
+                for (int id = 0; id < quantities.length; id++) {
+                    if (quantities[id] != 0) {
+                        String name = IngredientRegistry.nameOf(id);
+                        writeString(out, name);
+                        out.writeInt(quantities[id]);
+                        levels.merge(name, -quantities[id], Integer::sum);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The levels as of the records queued so far; changes still waiting in
+     * the counters are not included.
+     */
+    public Map<String, Integer> getLevels() {
+        synchronized (levels) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(levels));
+        }
+    }
+
+    private Collection<byte[]> checkpoint() {
+        synchronized (levels) {
+            return Collections.singletonList(encodeLevels(sequence, levels));
+        }
+    }
+
+    private void replay(ByteBuffer record) {
+        byte version = record.get();
+        if (version != RECORD_VERSION) {
+            throw new IllegalStateException("Unsupported inventory record version " + version);
+        }
+        byte type = record.get();
+        long recordSequence = record.getLong();
+        synchronized (levels) {
+            if (recordSequence <= checkpointSequence) {
+                return;
+            }
+            int count = record.getShort();
+            if (type == LEVELS) {
+                for (int i = 0; i < count; i++) {
+                    levels.put(readString(record), record.getInt());
+                }
+                if (checkpointSequence < 0) {
+                    checkpointSequence = recordSequence;
+                }
+            } else if (type == CONSUMED) {
+                for (int i = 0; i < count; i++) {
+                    levels.merge(readString(record), -record.getInt(), Integer::sum);
+                }
+            } else {
+                throw new IllegalStateException("Unknown inventory record type " + type);
+            }
+            sequence = Math.max(sequence, recordSequence);
+        }
+    }
+
+    private static byte[] encodeLevels(long sequence, Map<String, Integer> levels) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + levels.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            out.writeByte(LEVELS);
+            out.writeLong(sequence);
+            out.writeShort(levels.size());
+            for (Map.Entry<String, Integer> level : levels.entrySet()) {
+                writeString(out, level.getKey());
+                out.writeInt(level.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,137 @@
+package com.coffee.dao;
+
+import static com.coffee.dao.BinaryCatalogFormat.*;
+
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a binary catalog through a memory mapped file. Opening only reads
+ * the header and the ingredient table; each drink is decoded from the
+ * mapping when it is asked for.
+ */
+public class MappedCatalogDrinksLoader implements DrinksLoader, DrinksIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedCatalogDrinksLoader.class);
+
+    private final MappedByteBuffer buffer;
+
+    private final String[] ingredients;
+
+    private final int size;
+
+    private final int recordsOffset;
+
+    public MappedCatalogDrinksLoader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Invalid drinks catalog " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(8) != RECORD_SIZE) {
+            throw new IOException("Invalid drinks catalog " + file);
+        }
+        int ingredientCount = buffer.getShort(6);
+        size = buffer.getInt(12);
+        recordsOffset = buffer.getInt(16);
+        if (ingredientCount < 0) {
+            throw new IOException("Invalid drinks catalog " + file);
+        }
+        if (size < 0 || recordsOffset < HEADER_SIZE
+                || (long) recordsOffset + (long) size * RECORD_SIZE > buffer.capacity()) {
+            throw new IOException("Truncated drinks catalog " + file);
+        }
+
+        // The table must end before the records, which are within the buffer
+        ingredients = new String[ingredientCount];
+        int position = HEADER_SIZE;
+        for (int i = 0; i < ingredients.length; i++) {
+            if (position >= recordsOffset) {
+                throw new IOException("Invalid drinks catalog " + file);
+            }
+            int length = buffer.get(position) & 0xFF;
+            if (length > NAME_SIZE || position + 1 + length > recordsOffset) {
+                throw new IOException("Invalid drinks catalog " + file);
+            }
+            ingredients[i] = readAscii(position + 1, length);
+            position += 1 + length;
+        }
+        logger.debug("Mapped {} drinks from {}", size, file);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(int index) {
+        return readName(index, recordOffset(index));
+    }
+
+    @Override
+    public Drink getDrink(int index) {
+        int record = recordOffset(index);
+        try {
+            Drink drink = new Drink(readName(index, record));
+            int count = buffer.get(record + 1 + NAME_SIZE);
+            if (count < 0 || count > MAX_INGREDIENTS) {
+                throw StreamingDrinksLoader.corrupted("invalid record " + index + ": " + count + " ingredients");
+            }
+            int slot = record + 2 + NAME_SIZE;
+            for (int i = 0; i < count; i++, slot += SLOT_SIZE) {
+                int ingredient = buffer.getShort(slot);
+                if (ingredient < 0 || ingredient >= ingredients.length) {
+                    throw StreamingDrinksLoader.corrupted("invalid record " + index + ": no ingredient " + ingredient);
+                }
+                drink.addIngredient(new Ingredient(ingredients[ingredient], buffer.get(slot + 2)));
+            }
+            return drink;
+        } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+            throw StreamingDrinksLoader.corrupted("invalid record " + index + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Drink> loadDrinks() {
+        List<Drink> drinks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            drinks.add(getDrink(i));
+        }
+        return drinks;
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No drink at index " + index);
+        }
+        return recordsOffset + index * RECORD_SIZE;
+    }
+
+    private String readName(int index, int record) {
+        int length = buffer.get(record) & 0xFF;
+        if (length > NAME_SIZE) {
+            throw StreamingDrinksLoader.corrupted("invalid record " + index + ": name of " + length + " bytes");
+        }
+        return readAscii(record + 1, length);
+    }
+
+    private String readAscii(int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -12,7 +12,7 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PropertiesFileDrinksLoader {
+public class PropertiesFileDrinksLoader implements DrinksLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(PropertiesFileDrinksLoader.class);
 
@@ -40,6 +40,7 @@ public class PropertiesFileDrinksLoader {
         }
     }
 
+    @Override
     public List<Drink> loadDrinks() {
         try {
             List<Drink> drinks = new ArrayList<>();
@@ -0,0 +1,307 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a drinks properties file in a single pass, emitting each drink as
+ * soon as its record is complete, so only one record is held in memory.
+ *
+ * Compared to java.util.Properties the file has a few extra constraints:
+ * drinks.number is defined once, before the drinks, and the keys of a drink
+ * are contiguous. Escapes and line continuations are not supported. Keys
+ * PropertiesFileDrinksLoader never looks up, e.g. drink0.name, are ignored
+ * as it ignores them.
+ *
+ * A missing drink is only noticed at the end of the file, after the drinks
+ * before it have been emitted; a caller that must not act on part of a
+ * corrupted file collects the drinks first, as CoffeeMachine does.
+ */
+public class StreamingDrinksLoader implements DrinksLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingDrinksLoader.class);
+
+    private static final String DRINKS_NUMBER = "drinks.number";
+    private static final String DRINK = "drink";
+    private static final String INGREDIENT = "ingredient";
+
+    private final File file;
+
+    public StreamingDrinksLoader(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("Could not find " + file);
+        }
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public List<Drink> loadDrinks() {
+        List<Drink> drinks = new ArrayList<>();
+        forEachDrink(drinks::add);
+        return drinks;
+    }
+
+    @Override
+    public void forEachDrink(Consumer<Drink> consumer) {
+        try (Stream<Drink> drinks = drinks()) {
+            drinks.forEach(consumer);
+        }
+    }
+
+    /**
+     * Lazily parsed drinks; the stream must be closed to release the file.
+     */
+    public Stream<Drink> drinks() {
+        RecordIterator iterator;
+        try {
+            iterator = new RecordIterator(new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.ISO_8859_1)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.debug("Streaming drinks from {}", file);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    static RuntimeException corrupted(String reason) {
+        String message = "Drinks configuration file corrupted";
+        logger.error("{}: {}", message, reason);
+        return new RuntimeException(message);
+    }
+
+    private static final class RecordIterator implements Iterator<Drink>, Closeable {
+
+        private final BufferedReader reader;
+
+        private int drinksNumber = -1;
+
+        private final BitSet seen = new BitSet();
+
+        private int index;
+
+        private String name;
+
+        private int ingredients = -1;
+
+        private final TreeMap<Integer, String> ingredientNames = new TreeMap<>();
+
+        private final TreeMap<Integer, Integer> ingredientQuantities = new TreeMap<>();
+
+        private Drink next;
+
+        private boolean finished;
+
+        RecordIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                next = readNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Drink next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Drink drink = next;
+            next = null;
+            return drink;
+        }
+
+        private Drink readNext() {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Drink drink = readLine(line);
+                    if (drink != null) {
+                        return drink;
+                    }
+                }
+                finished = true;
+                Drink last = emit();
+                if (seen.cardinality() != Math.max(drinksNumber, 0)) {
+                    throw corrupted("expected " + drinksNumber + " drinks, found " + seen.cardinality());
+                }
+                return last;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw corrupted(e.getMessage());
+            }
+        }
+
+        private Drink readLine(String line) {
+            int start = 0;
+            while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+                start++;
+            }
+            if (start == line.length() || line.charAt(start) == '#' || line.charAt(start) == '!') {
+                return null;
+            }
+            int separator = start;
+            while (separator < line.length() && line.charAt(separator) != '='
+                    && line.charAt(separator) != ':' && !Character.isWhitespace(line.charAt(separator))) {
+                separator++;
+            }
+            String key = line.substring(start, separator);
+            int valueStart = separator;
+            while (valueStart < line.length() && Character.isWhitespace(line.charAt(valueStart))) {
+                valueStart++;
+            }
+            if (valueStart < line.length() && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')) {
+                valueStart++;
+            }
+            String value = line.substring(valueStart).trim();
+
+            if (DRINKS_NUMBER.equals(key)) {
+                if (drinksNumber >= 0) {
+                    throw corrupted("drinks.number defined twice");
+                }
+                drinksNumber = Integer.parseInt(value);
+                return null;
+            }
+            if (!key.startsWith(DRINK)) {
+                return null;
+            }
+            int dot = key.indexOf('.', DRINK.length());
+            if (dot < 0) {
+                return null;
+            }
+            int recordIndex = parseIndex(key, DRINK.length(), dot);
+            if (recordIndex < 0) {
+                return null;
+            }
+            if (drinksNumber < 0) {
+                throw corrupted("drinks.number must come before the drinks");
+            }
+
+            Drink completed = null;
+            if (recordIndex != index) {
+                completed = emit();
+                index = recordIndex;
+                if (index <= drinksNumber && seen.get(index)) {
+                    throw corrupted("the keys of drink" + index + " are not contiguous");
+                }
+            }
+            if (index <= drinksNumber) {
+                readField(key, dot + 1, value);
+            }
+            return completed;
+        }
+
+        private void readField(String key, int from, String value) {
+            if (key.regionMatches(from, "name", 0, 4) && key.length() == from + 4) {
+                name = value;
+            } else if (key.regionMatches(from, "ingredients", 0, 11) && key.length() == from + 11) {
+                ingredients = Integer.parseInt(value);
+            } else if (key.startsWith(INGREDIENT, from)) {
+                int dot = key.indexOf('.', from + INGREDIENT.length());
+                if (dot < 0) {
+                    return;
+                }
+                int ingredient = parseIndex(key, from + INGREDIENT.length(), dot);
+                if (ingredient < 0) {
+                    return;
+                }
+                if (key.regionMatches(dot + 1, "name", 0, 4) && key.length() == dot + 5) {
+                    ingredientNames.put(ingredient, value);
+                } else if (key.regionMatches(dot + 1, "quantity", 0, 8) && key.length() == dot + 9) {
+                    ingredientQuantities.put(ingredient, Integer.parseInt(value));
+                }
+            }
+        }
+
+        private Drink emit() {
+            if (index == 0 || index > drinksNumber) {
+                reset();
+                return null;
+            }
+            if (ingredients <= 0) {
+                throw corrupted("drink" + index + " has no ingredients");
+            }
+            Drink drink = new Drink();
+            drink.setName(name);
+            for (int j = 1; j <= ingredients; j++) {
+                String ingredientName = ingredientNames.get(j);
+                Integer quantity = ingredientQuantities.get(j);
+                if (ingredientName == null || quantity == null) {
+                    throw corrupted("drink" + index + " misses ingredient " + j);
+                }
+                Ingredient ingredient = new Ingredient();
+                ingredient.setName(ingredientName);
+                ingredient.setQuantity(quantity);
+                drink.addIngredient(ingredient);
+            }
+            seen.set(index);
+            reset();
+            return drink;
+        }
+
+        private void reset() {
+            name = null;
+            ingredients = -1;
+            ingredientNames.clear();
+            ingredientQuantities.clear();
+        }
+
+        /**
+         * The index written between from and to, or -1 if it is not one the
+         * properties loader would look up, e.g. 0, 01 or x.
+         */
+        private static int parseIndex(String key, int from, int to) {
+            if (from == to || to - from > 9 || key.charAt(from) == '0') {
+                return -1;
+            }
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                char c = key.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                result = result * 10 + (c - '0');
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the drinks file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.coffee.metrics;
+
+import com.coffee.core.Ingredient;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class CoffeeMachineMetrics implements CoffeeMachineMetricsMXBean {
+
+    private final Supplier<Collection<Ingredient>> ingredients;
+
+    private final ConcurrentMap<String, LongAdder> preparedOrders = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> failedOrders = new ConcurrentHashMap<>();
+
+    private final Map<FailureCause, LongAdder> failuresByCause = new EnumMap<>(FailureCause.class);
+
+    private final LatencyHistogram prepareLatency = new LatencyHistogram();
+
+    public CoffeeMachineMetrics(Supplier<Collection<Ingredient>> ingredients) {
+        this.ingredients = ingredients;
+        for (FailureCause cause : FailureCause.values()) {
+            failuresByCause.put(cause, new LongAdder());
+        }
+    }
+
+    public void recordPrepared(String drinkName) {
+        counter(preparedOrders, drinkName).increment();
+    }
+
+    public void recordPrepared(String drinkName, long nanos) {
+        recordPrepared(drinkName);
+        prepareLatency.record(nanos);
+    }
+
+    public void recordFailed(String drinkName, FailureCause cause) {
+        counter(failedOrders, drinkName).increment();
+        failuresByCause.get(cause).increment();
+    }
+
+    private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String drinkName) {
+        LongAdder counter = counters.get(drinkName);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(drinkName, name -> new LongAdder());
+        }
+        return counter;
+    }
+
+    public LatencyHistogram getPrepareLatency() {
+        return prepareLatency;
+    }
+
+    @Override
+    public Map<String, Long> getPreparedOrders() {
+        return snapshot(preparedOrders);
+    }
+
+    @Override
+    public Map<String, Long> getFailedOrders() {
+        return snapshot(failedOrders);
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByCause() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        failuresByCause.forEach((cause, counter) -> snapshot.put(cause.name(), counter.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public Map<String, Integer> getIngredientLevels() {
+        Map<String, Integer> levels = new TreeMap<>();
+        for (Ingredient ingredient : ingredients.get()) {
+            levels.put(ingredient.getName(), ingredient.getQuantity());
+        }
+        return levels;
+    }
+
+    @Override
+    public long getPrepareCount() {
+        return prepareLatency.getCount();
+    }
+
+    @Override
+    public double getPrepareLatencyMeanMicros() {
+        return prepareLatency.getMeanNanos() / 1000;
+    }
+
+    @Override
+    public double getPrepareLatencyP50Micros() {
+        return prepareLatency.getPercentileNanos(50) / 1000.0;
+    }
+
+    @Override
+    public double getPrepareLatencyP99Micros() {
+        return prepareLatency.getPercentileNanos(99) / 1000.0;
+    }
+
+    @Override
+    public double getPrepareLatencyMaxMicros() {
+        return prepareLatency.getMaxNanos() / 1000.0;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    public ObjectName registerMBean(String machineName) throws JMException {
+        ObjectName objectName = new ObjectName("com.coffee:type=CoffeeMachine,name=" + ObjectName.quote(machineName));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+}
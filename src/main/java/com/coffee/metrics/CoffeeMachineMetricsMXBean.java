@@ -0,0 +1,25 @@
+package com.coffee.metrics;
+
+import java.util.Map;
+
+public interface CoffeeMachineMetricsMXBean {
+
+    Map<String, Long> getPreparedOrders();
+
+    Map<String, Long> getFailedOrders();
+
+    Map<String, Long> getFailuresByCause();
+
+    Map<String, Integer> getIngredientLevels();
+
+    long getPrepareCount();
+
+    double getPrepareLatencyMeanMicros();
+
+    double getPrepareLatencyP50Micros();
+
+    double getPrepareLatencyP99Micros();
+
+    double getPrepareLatencyMaxMicros();
+
+}
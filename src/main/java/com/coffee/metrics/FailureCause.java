@@ -0,0 +1,8 @@
+package com.coffee.metrics;
+
+public enum FailureCause {
+
+    OUT_OF_STOCK,
+    BAD_RECIPE
+
+}
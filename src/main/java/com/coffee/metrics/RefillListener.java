@@ -0,0 +1,12 @@
+package com.coffee.metrics;
+
+/**
+ * Told when an ingredient is predicted to run out within the refill lead
+ * time. It is called on the thread that prepared the order, so it must be
+ * quick.
+ */
+public interface RefillListener {
+
+    void onRefillNeeded(String ingredientName, int quantity, long nanosToEmpty);
+
+}
@@ -0,0 +1,228 @@
+package com.coffee.metrics;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import com.coffee.core.InventoryListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Predicts when the stock of a coffee machine runs out.
+ *
+ * The consumption of each ingredient is an exponentially decayed rate: every
+ * deduction adds to it and it fades with the given time constant, so recent
+ * orders weigh more than old ones and each ingredient only needs a rate and
+ * a timestamp. Dividing the stock by the rate gives the time to empty.
+ *
+ * When that time drops below the refill lead the refill listener is told,
+ * once; it is told again only after the time to empty has gone back above
+ * twice the lead, e.g. after a refill, so that a level hovering around the
+ * threshold does not raise an event for every order.
+ */
+public class StockForecaster implements InventoryListener {
+
+    private static final int REARM_FACTOR = 2;
+
+    private final CoffeeMachine coffeeMachine;
+
+    private final double timeConstantNanos;
+
+    private final long refillLeadNanos;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<String, ConsumptionRate> rates = new ConcurrentHashMap<>();
+
+    private volatile RefillListener refillListener;
+
+    public StockForecaster(CoffeeMachine coffeeMachine, long window, long refillLead, TimeUnit unit) {
+        this(coffeeMachine, window, refillLead, unit, System::nanoTime);
+    }
+
+    /**
+     * The clock gives the current time in nanoseconds, like System.nanoTime.
+     */
+    public StockForecaster(CoffeeMachine coffeeMachine, long window, long refillLead, TimeUnit unit,
+            LongSupplier clock) {
+        if (coffeeMachine == null || clock == null) {
+            throw new IllegalArgumentException("StockForecaster requires a coffee machine and a clock");
+        }
+        if (window <= 0 || refillLead < 0) {
+            throw new IllegalArgumentException("Invalid forecast window or refill lead");
+        }
+        this.coffeeMachine = coffeeMachine;
+        this.timeConstantNanos = unit.toNanos(window);
+        this.refillLeadNanos = unit.toNanos(refillLead);
+        this.clock = clock;
+    }
+
+    public void setRefillListener(RefillListener refillListener) {
+        this.refillListener = refillListener;
+    }
+
+    @Override
+    public CompletableFuture<Void> onConsumed(Ingredient stock, int quantity) {
+        ConsumptionRate rate = rates.get(stock.getName());
+        if (rate == null) {
+            rate = rates.computeIfAbsent(stock.getName(), name -> new ConsumptionRate());
+        }
+        int left = stock.getQuantity();
+        long nanosToEmpty = rate.record(quantity, left, clock.getAsLong());
+        RefillListener listener = refillListener;
+        if (nanosToEmpty >= 0 && listener != null) {
+            listener.onRefillNeeded(stock.getName(), left, nanosToEmpty);
+        }
+        return null;
+    }
+
+    /**
+     * Units of the ingredient used per second, recent orders weighing more.
+     */
+    public double getRatePerSecond(String ingredientName) {
+        ConsumptionRate rate = rates.get(ingredientName);
+        return rate == null ? 0 : rate.get(clock.getAsLong()) * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Time until the ingredient runs out at the current rate; Long.MAX_VALUE
+     * if it is not being used.
+     */
+    public long getNanosToEmpty(String ingredientName) {
+        Ingredient stock = coffeeMachine.getIngredientsMap().get(ingredientName);
+        if (stock == null) {
+            throw new IllegalArgumentException("The ingredient \"" + ingredientName + "\" is not in the coffee machine");
+        }
+        return nanosUntilBelow(ingredientName, stock.getQuantity(), 1, clock.getAsLong());
+    }
+
+    /**
+     * Every ingredient of the machine, the first to run out first.
+     */
+    public List<Forecast> getIngredientForecasts() {
+        long now = clock.getAsLong();
+        List<Forecast> forecasts = new ArrayList<>();
+        for (Ingredient stock : coffeeMachine.getIngredients()) {
+            forecasts.add(new Forecast(stock.getName(), nanosUntilBelow(stock.getName(), stock.getQuantity(), 1, now)));
+        }
+        Collections.sort(forecasts, Comparator.comparingLong(Forecast::getNanos));
+        return forecasts;
+    }
+
+    /**
+     * Every drink of the catalog with the time until the stock no longer
+     * covers one more of it, the first to become unavailable first.
+     */
+    public List<Forecast> getDrinkForecasts() {
+        long now = clock.getAsLong();
+        List<Forecast> forecasts = new ArrayList<>();
+        for (Drink drink : coffeeMachine.getDrinks()) {
+            long nanos = Long.MAX_VALUE;
+            for (Ingredient ingredient : drink.getIngredients()) {
+                Ingredient stock = coffeeMachine.getIngredientsMap().get(ingredient.getName());
+                int quantity = stock == null ? 0 : stock.getQuantity();
+                nanos = Math.min(nanos, nanosUntilBelow(ingredient.getName(), quantity, ingredient.getQuantity(), now));
+            }
+            forecasts.add(new Forecast(drink.getName(), nanos));
+        }
+        Collections.sort(forecasts, Comparator.comparingLong(Forecast::getNanos));
+        return forecasts;
+    }
+
+    /**
+     * Time until fewer than needed units are left of a stock of quantity.
+     */
+    private long nanosUntilBelow(String ingredientName, int quantity, int needed, long now) {
+        if (quantity < needed) {
+            return 0;
+        }
+        ConsumptionRate rate = rates.get(ingredientName);
+        return toNanos(quantity - needed + 1, rate == null ? 0 : rate.get(now));
+    }
+
+    private static long toNanos(int units, double ratePerNano) {
+        if (ratePerNano <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double nanos = units / ratePerNano;
+        return nanos >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) nanos;
+    }
+
+    private final class ConsumptionRate {
+
+        private double ratePerNano;
+
+        private long updated;
+
+        private boolean sampled;
+
+        private boolean armed = true;
+
+        /**
+         * Adds a deduction and returns the time to empty if a refill should
+         * be asked for now, else -1.
+         */
+        synchronized long record(int consumed, int quantity, long now) {
+            ratePerNano = get(now) + consumed / timeConstantNanos;
+            updated = now;
+            sampled = true;
+            long nanosToEmpty = toNanos(quantity, ratePerNano);
+            if (armed && nanosToEmpty <= refillLeadNanos) {
+                armed = false;
+                return nanosToEmpty;
+            }
+            if (!armed && nanosToEmpty > REARM_FACTOR * refillLeadNanos) {
+                armed = true;
+            }
+            return -1;
+        }
+
+        synchronized double get(long now) {
+            // the clock may have any origin, even a negative one, so no
+            // sample yet means no consumption rather than one from time 0
+            if (!sampled) {
+                return 0;
+            }
+            return ratePerNano * Math.exp(-(now - updated) / timeConstantNanos);
+        }
+    }
+
+    /**
+     * An ingredient or a drink with the time until it runs out.
+     */
+    public static final class Forecast {
+
+        private final String name;
+
+        private final long nanos;
+
+        Forecast(String name, long nanos) {
+            this.name = name;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Long.MAX_VALUE if it is not running out at all.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + (nanos == Long.MAX_VALUE ? " not running out"
+                    : " in " + TimeUnit.NANOSECONDS.toSeconds(nanos) + " s");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.coffee.order;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Recipe;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Several coffee machines behind one order entry point. Each order goes to
+ * the machine with the fewest outstanding orders among those whose stock
+ * covers it. The stock is only read, without locking any machine, so two
+ * orders may pick the same machine for its last portion: the one that finds
+ * the stock gone is routed again to a machine it has not tried yet.
+ */
+public class CoffeeMachineFleet {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoffeeMachineFleet.class);
+
+    private static final class Member {
+
+        private final CoffeeMachine coffeeMachine;
+
+        private final OrderProcessor orderProcessor;
+
+        private final AtomicInteger outstandingOrders = new AtomicInteger();
+
+        private Member(CoffeeMachine coffeeMachine, OrderProcessor orderProcessor) {
+            this.coffeeMachine = coffeeMachine;
+            this.orderProcessor = orderProcessor;
+        }
+    }
+
+    private final Member[] members;
+
+    private final LongAdder reroutedOrders = new LongAdder();
+
+    public CoffeeMachineFleet(List<CoffeeMachine> coffeeMachines, int workers, int queueCapacity) {
+        if (coffeeMachines == null || coffeeMachines.isEmpty()) {
+            throw new IllegalArgumentException("CoffeeMachineFleet requires at least one coffee machine");
+        }
+        members = new Member[coffeeMachines.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new Member(coffeeMachines.get(i),
+                    new OrderProcessor(coffeeMachines.get(i), workers, queueCapacity));
+        }
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    public CoffeeMachine getCoffeeMachine(int index) {
+        return members[index].coffeeMachine;
+    }
+
+    /**
+     * Orders routed to the machine and not prepared or failed yet.
+     */
+    public int getOutstandingOrders(int index) {
+        return members[index].outstandingOrders.get();
+    }
+
+    public long getReroutedOrders() {
+        return reroutedOrders.sum();
+    }
+
+    /**
+     * Orders a drink of the catalog of the first machine that offers it.
+     */
+    public CompletableFuture<Recipe> submitOrder(String drinkName) {
+        for (Member member : members) {
+            if (member.coffeeMachine.containsDrink(drinkName)) {
+                return submitOrder(member.coffeeMachine.getRecipe(drinkName));
+            }
+        }
+        CompletableFuture<Recipe> order = new CompletableFuture<>();
+        order.completeExceptionally(new IllegalArgumentException("The drink \"" + drinkName + "\" is not available"));
+        return order;
+    }
+
+    /**
+     * Completes with the prepared recipe, or fails with the last failure once
+     * no machine is left with enough stock.
+     */
+    public CompletableFuture<Recipe> submitOrder(Recipe recipe) {
+        CompletableFuture<Recipe> order = new CompletableFuture<>();
+        route(recipe, new boolean[members.length], order, null);
+        return order;
+    }
+
+    private void route(Recipe recipe, boolean[] tried, CompletableFuture<Recipe> order, Throwable lastFailure) {
+        int chosen = choose(recipe, tried);
+        if (chosen < 0) {
+            order.completeExceptionally(lastFailure != null ? lastFailure
+                    : new IllegalStateException("No coffee machine has enough stock for " + recipe.getName()));
+            return;
+        }
+        tried[chosen] = true;
+        Member member = members[chosen];
+        member.outstandingOrders.incrementAndGet();
+        member.orderProcessor.submitOrder(recipe).whenComplete((prepared, e) -> {
+            member.outstandingOrders.decrementAndGet();
+            if (e == null) {
+                order.complete(prepared);
+            } else if (e instanceof IllegalStateException || e instanceof RejectedExecutionException) {
+                reroutedOrders.increment();
+                logger.debug("Routing {} again after machine {} failed: {}", recipe.getName(), chosen, e.getMessage());
+                route(recipe, tried, order, e);
+            } else {
+                order.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * The untried machine with stock for the recipe and the fewest
+     * outstanding orders, or -1. Ties are broken from a random start so
+     * that idle machines share the orders.
+     */
+    private int choose(Recipe recipe, boolean[] tried) {
+        int start = ThreadLocalRandom.current().nextInt(members.length);
+        int chosen = -1;
+        int chosenLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < members.length; i++) {
+            int index = (start + i) % members.length;
+            if (tried[index]) {
+                continue;
+            }
+            int load = members[index].outstandingOrders.get();
+            if (load < chosenLoad && members[index].coffeeMachine.hasStockFor(recipe)) {
+                chosen = index;
+                chosenLoad = load;
+            }
+        }
+        return chosen;
+    }
+
+    public void shutdown() {
+        for (Member member : members) {
+            member.orderProcessor.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Member member : members) {
+            if (!member.orderProcessor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
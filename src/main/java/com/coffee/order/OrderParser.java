@@ -0,0 +1,121 @@
+package com.coffee.order;
+
+import com.coffee.order.OrderRequest.Command;
+
+/**
+ * Single pass tokenizer for the console protocol:
+ *
+ * list | help | prepare drink [modifiers] | save drink [modifiers] favourite
+ *
+ * where each modifier is a separate token: + or - for the strength, m for
+ * milk and s for each lump of sugar. A line that does not follow the
+ * grammar is parsed as Command.INVALID.
+ */
+public final class OrderParser {
+
+    private OrderParser() {
+    }
+
+    public static OrderRequest parse(CharSequence line, OrderRequest request) {
+        request.reset();
+        int length = line.length();
+        int tokens = 0;
+        int pendingStart = -1;
+        int pendingEnd = -1;
+        Command command = Command.INVALID;
+        int i = 0;
+        while (true) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (tokens == 0) {
+                command = command(line, start, i);
+                if (command == Command.INVALID) {
+                    return request;
+                }
+            } else if (command == Command.LIST || command == Command.HELP) {
+                return request;
+            } else if (tokens == 1) {
+                request.setDrinkName(line, start, i);
+            } else if (command == Command.PREPARE) {
+                if (!modifier(line, start, i, request)) {
+                    return request;
+                }
+            } else {
+                if (pendingStart >= 0 && !modifier(line, pendingStart, pendingEnd, request)) {
+                    return request;
+                }
+                pendingStart = start;
+                pendingEnd = i;
+            }
+            tokens++;
+        }
+        if (command == Command.PREPARE && tokens < 2) {
+            return request;
+        }
+        if (command == Command.SAVE) {
+            if (pendingStart < 0) {
+                return request;
+            }
+            request.setFavouriteName(line, pendingStart, pendingEnd);
+        }
+        request.setCommand(command);
+        return request;
+    }
+
+    private static Command command(CharSequence line, int start, int end) {
+        if (matches(line, start, end, Command.PREPARE.getKeyword(), false)) {
+            return Command.PREPARE;
+        } else if (matches(line, start, end, Command.SAVE.getKeyword(), false)) {
+            return Command.SAVE;
+        } else if (matches(line, start, end, Command.LIST.getKeyword(), true)) {
+            return Command.LIST;
+        } else if (matches(line, start, end, Command.HELP.getKeyword(), true)) {
+            return Command.HELP;
+        }
+        return Command.INVALID;
+    }
+
+    private static boolean modifier(CharSequence line, int start, int end, OrderRequest request) {
+        if (end - start != 1) {
+            return false;
+        }
+        switch (line.charAt(start)) {
+            case '+':
+                request.changeStrength(1);
+                return true;
+            case '-':
+                request.changeStrength(-1);
+                return true;
+            case 'm':
+                request.addMilk();
+                return true;
+            case 's':
+                request.addSugar();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean matches(CharSequence line, int start, int end, String keyword, boolean ignoreCase) {
+        if (end - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = line.charAt(start + i);
+            char k = keyword.charAt(i);
+            if (c != k && !(ignoreCase && Character.toLowerCase(c) == k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+package com.coffee.order;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Recipe;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prepares orders on a fixed pool of workers fed by a bounded queue. When the
+ * queue is full new orders are rejected straight away instead of piling up.
+ */
+public class OrderProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderProcessor.class);
+
+    private final CoffeeMachine coffeeMachine;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder preparedOrders = new LongAdder();
+    private final LongAdder failedOrders = new LongAdder();
+    private final LongAdder rejectedOrders = new LongAdder();
+
+    public OrderProcessor(CoffeeMachine coffeeMachine, int workers, int queueCapacity) {
+        if (coffeeMachine == null) {
+            throw new IllegalArgumentException("OrderProcessor requires a coffee machine");
+        }
+        if (workers <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid order processor size");
+        }
+        this.coffeeMachine = coffeeMachine;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new WorkerThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public CompletableFuture<Drink> submitOrder(String drinkName) {
+        try {
+            return submitOrder(coffeeMachine.getDrinkByName(drinkName));
+        } catch (IllegalArgumentException e) {
+            failedOrders.increment();
+            return failed(e);
+        }
+    }
+
+    public CompletableFuture<Drink> submitOrder(Drink drink) {
+        return submit(drink, drink.getName(), coffeeMachine::prepareDrink);
+    }
+
+    public CompletableFuture<Recipe> submitOrder(Recipe recipe) {
+        return submit(recipe, recipe.getName(), coffeeMachine::prepareDrink);
+    }
+
+    private <T> CompletableFuture<T> submit(T drink, String drinkName, Consumer<T> preparation) {
+        CompletableFuture<T> order = new CompletableFuture<>();
+        try {
+            executor.execute(() -> prepare(drink, preparation, order));
+        } catch (RejectedExecutionException e) {
+            rejectedOrders.increment();
+            logger.warn("Order for {} rejected: {} orders already queued", drinkName, getQueuedOrders());
+            order.completeExceptionally(e);
+        }
+        return order;
+    }
+
+    private <T> void prepare(T drink, Consumer<T> preparation, CompletableFuture<T> order) {
+        try {
+            preparation.accept(drink);
+            preparedOrders.increment();
+            order.complete(drink);
+        } catch (RuntimeException e) {
+            failedOrders.increment();
+            order.completeExceptionally(e);
+        }
+    }
+
+    private static CompletableFuture<Drink> failed(Throwable cause) {
+        CompletableFuture<Drink> order = new CompletableFuture<>();
+        order.completeExceptionally(cause);
+        return order;
+    }
+
+    public int getQueuedOrders() {
+        return executor.getQueue().size();
+    }
+
+    public long getPreparedOrders() {
+        return preparedOrders.sum();
+    }
+
+    public long getFailedOrders() {
+        return failedOrders.sum();
+    }
+
+    public long getRejectedOrders() {
+        return rejectedOrders.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "order-worker-" + counter.incrementAndGet());
+        }
+    }
+}
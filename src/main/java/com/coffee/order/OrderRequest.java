@@ -0,0 +1,152 @@
+package com.coffee.order;
+
+import com.coffee.core.DrinkModifiers;
+
+/**
+ * A parsed console line: the command, the drink and favourite names as views
+ * over the line, and the drink modifiers. One instance is meant to be reused
+ * for every line a front end reads, so parsing allocates nothing; the views
+ * are valid until the next parse.
+ */
+public final class OrderRequest {
+
+    public enum Command {
+
+        LIST("list"),
+        HELP("help"),
+        PREPARE("prepare"),
+        SAVE("save"),
+        INVALID("");
+
+        private final String keyword;
+
+        private Command(String keyword) {
+            this.keyword = keyword;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+    }
+
+    /**
+     * A region of the parsed line, read without copying it.
+     */
+    private static final class Region implements CharSequence {
+
+        private CharSequence line = "";
+
+        private int start;
+
+        private int end;
+
+        private void set(CharSequence line, int start, int end) {
+            this.line = line;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("No character at " + index);
+            }
+            return line.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return line.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return line.subSequence(start, end).toString();
+        }
+    }
+
+    private Command command = Command.INVALID;
+
+    private final Region drinkName = new Region();
+
+    private final Region favouriteName = new Region();
+
+    private int strength;
+
+    private int strengthChanges;
+
+    private int milk;
+
+    private int sugar;
+
+    void reset() {
+        command = Command.INVALID;
+        drinkName.set("", 0, 0);
+        favouriteName.set("", 0, 0);
+        strength = 0;
+        strengthChanges = 0;
+        milk = 0;
+        sugar = 0;
+    }
+
+    void setCommand(Command command) {
+        this.command = command;
+    }
+
+    void setDrinkName(CharSequence line, int start, int end) {
+        drinkName.set(line, start, end);
+    }
+
+    void setFavouriteName(CharSequence line, int start, int end) {
+        favouriteName.set(line, start, end);
+    }
+
+    void changeStrength(int change) {
+        strength += change;
+        strengthChanges++;
+    }
+
+    void addMilk() {
+        milk++;
+    }
+
+    void addSugar() {
+        sugar++;
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    public CharSequence getDrinkName() {
+        return drinkName;
+    }
+
+    public CharSequence getFavouriteName() {
+        return favouriteName;
+    }
+
+    /**
+     * The modifiers asked for; like DrinkModifiers.of it rejects changing the
+     * strength twice or adding more than the allowed sugar.
+     */
+    public DrinkModifiers getModifiers() {
+        if (strengthChanges > 1) {
+            throw new IllegalArgumentException("The strength can be changed only once");
+        }
+        if (milk > 1) {
+            throw new IllegalArgumentException("Milk can be added only once");
+        }
+        return DrinkModifiers.of(strength, milk == 1, sugar);
+    }
+
+    @Override
+    public String toString() {
+        return command + " " + drinkName + " " + favouriteName;
+    }
+}
@@ -0,0 +1,238 @@
+package com.coffee.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for hot paths. Level checks happen on the caller thread, events go
+ * through a bounded ring buffer and are written by a single background
+ * thread, so callers never wait on file I/O. When the buffer is full events
+ * are dropped and counted. A logger can also keep only one event every N,
+ * configured per category with the coffee.log.sampleRate.&lt;category&gt;
+ * system property.
+ */
+public final class AsyncLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogger.class);
+
+    private static final int BUFFER_SIZE = Integer.getInteger("coffee.log.bufferSize", 8192);
+
+    private static final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+
+    private static final AtomicLong pending = new AtomicLong();
+
+    private static final AtomicLong dropped = new AtomicLong();
+
+    static {
+        Thread writer = new Thread(AsyncLogger::write, "async-logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1, TimeUnit.SECONDS)));
+    }
+
+    private enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private final Logger delegate;
+
+    private volatile int sampleRate;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private AsyncLogger(Logger delegate, int sampleRate) {
+        this.delegate = delegate;
+        setSampleRate(sampleRate);
+    }
+
+    /**
+     * Keeps one event every sampleRate from now on; 1 keeps them all.
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Invalid sample rate: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public static AsyncLogger getLogger(Class<?> clazz) {
+        return new AsyncLogger(LoggerFactory.getLogger(clazz), 1);
+    }
+
+    public static AsyncLogger getLogger(Class<?> clazz, String category, int defaultSampleRate) {
+        return new AsyncLogger(LoggerFactory.getLogger(clazz),
+                Integer.getInteger("coffee.log.sampleRate." + category, defaultSampleRate));
+    }
+
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (delegate.isDebugEnabled()) {
+            log(Level.DEBUG, format, arg1, arg2);
+        }
+    }
+
+    public void debug(String format, Object arg) {
+        debug(format, arg, null);
+    }
+
+    public void debug(String message) {
+        debug(message, null, null);
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (delegate.isInfoEnabled()) {
+            log(Level.INFO, format, arg1, arg2);
+        }
+    }
+
+    public void info(String format, Object arg) {
+        info(format, arg, null);
+    }
+
+    public void info(String message) {
+        info(message, null, null);
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (delegate.isWarnEnabled()) {
+            log(Level.WARN, format, arg1, arg2);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        warn(format, arg, null);
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (delegate.isErrorEnabled()) {
+            log(Level.ERROR, format, arg1, arg2);
+        }
+    }
+
+    public void error(String format, Object arg) {
+        error(format, arg, null);
+    }
+
+    private void log(Level level, String format, Object arg1, Object arg2) {
+        int rate = sampleRate;
+        if (rate > 1 && sampleCounter.getAndIncrement() % rate != 0) {
+            return;
+        }
+        pending.incrementAndGet();
+        if (!buffer.offer(new Event(delegate, level, format, snapshot(arg1), snapshot(arg2)))) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Arguments are formatted later on the writer thread, so any argument
+     * that may still change is turned into its string now; otherwise an
+     * ingredient would be logged with the quantity it has at write time.
+     */
+    private static Object snapshot(Object arg) {
+        if (arg == null || arg instanceof String || arg instanceof Integer || arg instanceof Long
+                || arg instanceof Double || arg instanceof Boolean || arg instanceof Enum
+                || arg instanceof Throwable) {
+            return arg;
+        }
+        return String.valueOf(arg);
+    }
+
+    public static int getBufferSize() {
+        return BUFFER_SIZE;
+    }
+
+    /**
+     * Events accepted and not written yet.
+     */
+    public static long getPendingEvents() {
+        return pending.get();
+    }
+
+    public static long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until every buffered event has been written.
+     */
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void write() {
+        long reportedDrops = 0;
+        while (true) {
+            try {
+                Event event = buffer.take();
+                try {
+                    event.write();
+                } finally {
+                    pending.decrementAndGet();
+                }
+                long drops = dropped.get();
+                if (drops > reportedDrops) {
+                    logger.warn("{} log events dropped because the log buffer was full", drops - reportedDrops);
+                    reportedDrops = drops;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not write log event", e);
+            }
+        }
+    }
+
+    private static final class Event {
+
+        private final Logger logger;
+        private final Level level;
+        private final String format;
+        private final Object arg1;
+        private final Object arg2;
+
+        Event(Logger logger, Level level, String format, Object arg1, Object arg2) {
+            this.logger = logger;
+            this.level = level;
+            this.format = format;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+
+        void write() {
+            switch (level) {
+                case DEBUG:
+                    logger.debug(format, arg1, arg2);
+                    break;
+                case INFO:
+                    logger.info(format, arg1, arg2);
+                    break;
+                case WARN:
+                    logger.warn(format, arg1, arg2);
+                    break;
+                default:
+                    logger.error(format, arg1, arg2);
+            }
+        }
+    }
+}
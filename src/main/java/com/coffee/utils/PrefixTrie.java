@@ -0,0 +1,115 @@
+package com.coffee.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set of words stored as a prefix tree. Children are kept in sorted arrays,
+ * so a prefix query walks one node per character and then lists the words
+ * below it in alphabetical order, stopping at the requested limit.
+ */
+public final class PrefixTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+
+        private char[] keys = NO_KEYS;
+
+        private Node[] children = NO_CHILDREN;
+
+        private boolean terminal;
+
+        private Node child(char key) {
+            int position = Arrays.binarySearch(keys, key);
+            return position < 0 ? null : children[position];
+        }
+
+        private Node addChild(char key) {
+            int position = Arrays.binarySearch(keys, key);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            char[] updatedKeys = new char[keys.length + 1];
+            Node[] updatedChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, updatedKeys, 0, position);
+            System.arraycopy(children, 0, updatedChildren, 0, position);
+            updatedKeys[position] = key;
+            updatedChildren[position] = new Node();
+            System.arraycopy(keys, position, updatedKeys, position + 1, keys.length - position);
+            System.arraycopy(children, position, updatedChildren, position + 1, children.length - position);
+            keys = updatedKeys;
+            children = updatedChildren;
+            return updatedChildren[position];
+        }
+    }
+
+    private final Node root = new Node();
+
+    private int size;
+
+    public PrefixTrie() {
+    }
+
+    public PrefixTrie(Collection<String> words) {
+        words.forEach(this::add);
+    }
+
+    public synchronized boolean add(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.addChild(word.charAt(i));
+        }
+        if (node.terminal) {
+            return false;
+        }
+        node.terminal = true;
+        size++;
+        return true;
+    }
+
+    public synchronized boolean contains(String word) {
+        Node node = find(word);
+        return node != null && node.terminal;
+    }
+
+    /**
+     * At most limit words starting with the prefix, in alphabetical order.
+     */
+    public synchronized List<String> withPrefix(String prefix, int limit) {
+        List<String> words = new ArrayList<>();
+        Node node = find(prefix);
+        if (node != null && limit > 0) {
+            collect(node, new StringBuilder(prefix), words, limit);
+        }
+        return words;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private static void collect(Node node, StringBuilder word, List<String> words, int limit) {
+        if (node.terminal) {
+            words.add(word.toString());
+        }
+        for (int i = 0; i < node.keys.length && words.size() < limit; i++) {
+            word.append(node.keys[i]);
+            collect(node.children[i], word, words, limit);
+            word.setLength(word.length() - 1);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,98 @@
+package com.coffee.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Rules a name has to follow: maximum length, allowed ASCII characters and
+ * reserved names. The charset is written like a regex character class
+ * without brackets, e.g. "a-zA-Z".
+ */
+public final class ValidationRules {
+
+    public static final String MAX_LENGTH_PROPERTY = "coffee.validation.maxLength";
+    public static final String CHARSET_PROPERTY = "coffee.validation.charset";
+    public static final String RESERVED_NAMES_PROPERTY = "coffee.validation.reservedNames";
+
+    private static final int DEFAULT_MAX_LENGTH = 30;
+    private static final String DEFAULT_CHARSET = "a-zA-Z";
+
+    public static final ValidationRules DEFAULT =
+            new ValidationRules(DEFAULT_MAX_LENGTH, DEFAULT_CHARSET, Collections.<String>emptySet());
+
+    private final int maxLength;
+
+    private final boolean[] allowedChars = new boolean[128];
+
+    private final Set<String> reservedNames;
+
+    public ValidationRules(int maxLength, String charset, Collection<String> reservedNames) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("Invalid maximum length: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        parseCharset(charset);
+        this.reservedNames = Collections.unmodifiableSet(new HashSet<>(reservedNames));
+    }
+
+    public static ValidationRules fromProperties(Properties properties) {
+        int maxLength = Integer.parseInt(
+                properties.getProperty(MAX_LENGTH_PROPERTY, String.valueOf(DEFAULT_MAX_LENGTH)).trim());
+        String charset = properties.getProperty(CHARSET_PROPERTY, DEFAULT_CHARSET).trim();
+        Set<String> reserved = new HashSet<>();
+        for (String name : properties.getProperty(RESERVED_NAMES_PROPERTY, "").split(",")) {
+            if (!name.trim().isEmpty()) {
+                reserved.add(name.trim());
+            }
+        }
+        return new ValidationRules(maxLength, charset, reserved);
+    }
+
+    private void parseCharset(String charset) {
+        if (charset == null || charset.isEmpty()) {
+            throw new IllegalArgumentException("Invalid charset (charset null or empty)");
+        }
+        for (int i = 0; i < charset.length(); i++) {
+            char from = charset.charAt(i);
+            char to = from;
+            if (i + 2 < charset.length() && charset.charAt(i + 1) == '-') {
+                to = charset.charAt(i + 2);
+                i += 2;
+            }
+            if (from > to || to >= allowedChars.length) {
+                throw new IllegalArgumentException("Invalid charset: " + charset);
+            }
+            Arrays.fill(allowedChars, from, to + 1, true);
+        }
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public Set<String> getReservedNames() {
+        return reservedNames;
+    }
+
+    public void validate(String s) {
+        if (null == s || s.isEmpty()) {
+            throw new IllegalArgumentException("Invalid ingredient name (name null or empty)");
+        }
+        if (maxLength < s.length()) {
+            throw new IllegalArgumentException("Invalid ingredient name (name too long)");
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= allowedChars.length || !allowedChars[c]) {
+                throw new IllegalArgumentException("Invalid ingredient name (name not valid)");
+            }
+        }
+        if (!reservedNames.isEmpty() && reservedNames.contains(s)) {
+            throw new IllegalArgumentException("Invalid ingredient name (name reserved)");
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ui;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Ingredient;
+import com.coffee.core.Recipe;
+import com.coffee.order.OrderParser;
+import com.coffee.order.OrderRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Headless front end: reads console commands from a reader, one per line,
+ * and prepares the orders on the calling thread. It writes one short line
+ * per command and no ingredient table, so that a file of orders can be
+ * replayed as fast as the coffee machine takes them.
+ */
+public class BatchHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchHandler.class);
+
+    /**
+     * What happens when the stock no longer covers an order.
+     */
+    public enum StockPolicy {
+        /**
+         * The order fails, as it would on a real machine.
+         */
+        FIXED,
+        /**
+         * The ingredients of an order the stock does not cover are filled up
+         * before it is prepared, so that a long replay measures orders
+         * rather than failures.
+         */
+        REFILL
+    }
+
+    private final CoffeeMachine coffeeMachine;
+
+    private final String userId;
+
+    private final StockPolicy stockPolicy;
+
+    public BatchHandler(CoffeeMachine coffeeMachine, String userId) {
+        this(coffeeMachine, userId, StockPolicy.FIXED);
+    }
+
+    public BatchHandler(CoffeeMachine coffeeMachine, String userId, StockPolicy stockPolicy) {
+        if (coffeeMachine == null || stockPolicy == null) {
+            throw new IllegalArgumentException("BatchHandler requires a coffee machine and a stock policy");
+        }
+        this.coffeeMachine = coffeeMachine;
+        this.userId = userId;
+        this.stockPolicy = stockPolicy;
+    }
+
+    /**
+     * Runs every command of the input; the output is not flushed, so that
+     * the caller decides how it is buffered.
+     */
+    public Summary run(BufferedReader in, Writer out) throws IOException {
+        Summary summary = new Summary(stockPolicy);
+        OrderRequest request = new OrderRequest();
+        long start = System.nanoTime();
+        String line;
+        while ((line = in.readLine()) != null) {
+            summary.lines++;
+            switch (OrderParser.parse(line, request).getCommand()) {
+                case LIST:
+                    for (String name : coffeeMachine.getDrinksNameList()) {
+                        out.write(name);
+                        out.write('\n');
+                    }
+                    break;
+                case HELP:
+                    break;
+                case PREPARE:
+                    prepare(request, summary, out);
+                    break;
+                case SAVE:
+                    save(request, summary, out);
+                    break;
+                default:
+                    summary.invalid++;
+                    out.write("Invalid command at line ");
+                    out.write(Long.toString(summary.lines));
+                    out.write('\n');
+            }
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        logger.info("Batch finished: {}", summary);
+        return summary;
+    }
+
+    private void prepare(OrderRequest request, Summary summary, Writer out) throws IOException {
+        Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+        if (recipe == null) {
+            summary.unknown++;
+            out.write("Unknown drink ");
+            out.append(request.getDrinkName());
+            out.write('\n');
+            return;
+        }
+        Recipe order;
+        try {
+            order = recipe.customize(request.getModifiers());
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            summary.rejected++;
+            fail(recipe, e, out);
+            return;
+        }
+        if (stockPolicy == StockPolicy.REFILL && !coffeeMachine.hasStockFor(order)) {
+            refill(order, summary);
+        }
+        try {
+            coffeeMachine.prepareDrink(order);
+            summary.prepared++;
+            out.write("Prepared ");
+            out.write(recipe.getName());
+            out.write('\n');
+        } catch (IllegalStateException e) {
+            summary.outOfStock++;
+            fail(recipe, e, out);
+        } catch (IllegalArgumentException e) {
+            summary.rejected++;
+            fail(recipe, e, out);
+        }
+    }
+
+    /**
+     * Fills up the ingredients of the order before it is prepared, so that
+     * the machine never records it as out of stock; an order using an
+     * ingredient the machine lacks is left to fail.
+     */
+    private void refill(Recipe order, Summary summary) {
+        for (int i = 0; i < order.getIngredientsCount(); i++) {
+            if (coffeeMachine.getIngredientsMap().get(order.getIngredientName(i)) == null) {
+                return;
+            }
+        }
+        for (int i = 0; i < order.getIngredientsCount(); i++) {
+            Ingredient stock = coffeeMachine.getIngredientsMap().get(order.getIngredientName(i));
+            int missing = Ingredient.MAX_QUANTITY - stock.getQuantity();
+            if (missing > 0) {
+                coffeeMachine.refill(stock.getName(), missing);
+            }
+        }
+        summary.refills++;
+    }
+
+    private void save(OrderRequest request, Summary summary, Writer out) throws IOException {
+        Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+        if (recipe == null) {
+            summary.unknown++;
+            out.write("Unknown drink ");
+            out.append(request.getDrinkName());
+            out.write('\n');
+            return;
+        }
+        try {
+            Recipe favourite = coffeeMachine.saveFavourite(userId, request.getFavouriteName().toString(),
+                    recipe.customize(request.getModifiers()));
+            summary.saved++;
+            out.write("Saved ");
+            out.write(favourite.getName());
+            out.write('\n');
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            summary.rejected++;
+            fail(recipe, e, out);
+        }
+    }
+
+    private static void fail(Recipe recipe, RuntimeException e, Writer out) throws IOException {
+        out.write("Failed ");
+        out.write(recipe.getName());
+        out.write(": ");
+        out.write(String.valueOf(e.getMessage()));
+        out.write('\n');
+    }
+
+    /**
+     * Counts of a batch run.
+     */
+    public static final class Summary {
+
+        private final StockPolicy stockPolicy;
+
+        private long lines;
+
+        private long prepared;
+
+        private long saved;
+
+        private long outOfStock;
+
+        private long rejected;
+
+        private long unknown;
+
+        private long invalid;
+
+        private long refills;
+
+        private long elapsedNanos;
+
+        private Summary(StockPolicy stockPolicy) {
+            this.stockPolicy = stockPolicy;
+        }
+
+        public StockPolicy getStockPolicy() {
+            return stockPolicy;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getPrepared() {
+            return prepared;
+        }
+
+        public long getSaved() {
+            return saved;
+        }
+
+        public long getOutOfStock() {
+            return outOfStock;
+        }
+
+        /**
+         * Orders and favourites refused because of their modifiers, e.g.
+         * too much sugar, or a favourite that takes the name of a drink.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getUnknown() {
+            return unknown;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        /**
+         * Times the stock was filled up under the REFILL policy.
+         */
+        public long getRefills() {
+            return refills;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getLinesPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines * 1_000_000_000L / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return lines + " lines in " + elapsedNanos / 1_000_000 + " ms (" + getLinesPerSecond() + "/s): "
+                    + prepared + " prepared, " + saved + " saved, " + outOfStock + " out of stock, "
+                    + rejected + " rejected, " + unknown + " unknown drinks, " + invalid + " invalid; "
+                    + stockPolicy + " stock, " + refills + " refills";
+        }
+    }
+}
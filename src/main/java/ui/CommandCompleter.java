@@ -0,0 +1,118 @@
+package ui;
+
+import com.coffee.core.CatalogListener;
+import com.coffee.utils.PrefixTrie;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import jline.console.completer.Completer;
+
+/**
+ * Completes console commands: the command word, then a drink name for
+ * prepare and save, then drink modifiers. Drink names live in a prefix trie
+ * that follows the catalog, so completing does not depend on its size.
+ */
+public class CommandCompleter implements Completer, CatalogListener {
+
+    public static final int MAX_CANDIDATES = 100;
+
+    private static final PrefixTrie COMMANDS = new PrefixTrie(Arrays.asList(InputHandler.LIST_COMMAND,
+            InputHandler.HELP_COMMAND, InputHandler.PREPARE_COMMAND, InputHandler.SAVE_COMMAND));
+
+    private static final PrefixTrie MODIFIERS = new PrefixTrie(Arrays.asList("+", "-", "m", "s"));
+
+    private volatile PrefixTrie drinkNames;
+
+    private final PrefixTrie favouriteNames = new PrefixTrie();
+
+    public CommandCompleter(Collection<String> drinkNames) {
+        this.drinkNames = new PrefixTrie(drinkNames);
+    }
+
+    /**
+     * Favourites are completed like drinks but kept apart, so that a catalog
+     * reload does not drop them.
+     */
+    public void addFavouriteName(String favouriteName) {
+        favouriteNames.add(favouriteName);
+    }
+
+    @Override
+    public void onDrinkAdded(String drinkName) {
+        drinkNames.add(drinkName);
+    }
+
+    @Override
+    public void onCatalogReloaded(List<String> names) {
+        drinkNames = new PrefixTrie(names);
+    }
+
+    @Override
+    public int complete(String buffer, int cursor, List<CharSequence> candidates) {
+        String text = buffer == null ? "" : buffer;
+        String line = text.substring(0, cursor);
+        int start = line.length();
+        while (start > 0 && !Character.isWhitespace(line.charAt(start - 1))) {
+            start--;
+        }
+        String prefix = line.substring(start);
+
+        PrefixTrie drinks = drinkNames;
+        PrefixTrie words = wordsFor(line, start, drinks);
+        if (words == null) {
+            return -1;
+        }
+        if (words == COMMANDS) {
+            // the order parser takes some command words in any case
+            prefix = prefix.toLowerCase(Locale.ROOT);
+        }
+        List<String> matches = words.withPrefix(prefix, MAX_CANDIDATES);
+        if (words == drinks && favouriteNames.size() > 0) {
+            matches.addAll(favouriteNames.withPrefix(prefix, MAX_CANDIDATES));
+            Collections.sort(matches);
+            if (matches.size() > MAX_CANDIDATES) {
+                matches.subList(MAX_CANDIDATES, matches.size()).clear();
+            }
+        }
+        if (matches.size() == 1 && cursor == text.length()) {
+            candidates.add(matches.get(0) + " ");
+        } else {
+            candidates.addAll(matches);
+        }
+        return candidates.isEmpty() ? -1 : start;
+    }
+
+    /**
+     * The words that can appear at the token starting at start, judging
+     * from the tokens before it.
+     */
+    private static PrefixTrie wordsFor(String line, int start, PrefixTrie drinks) {
+        int tokens = 0;
+        String command = null;
+        int i = 0;
+        while (true) {
+            while (i < start && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+            int tokenStart = i;
+            while (i < start && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (tokens++ == 0) {
+                command = line.substring(tokenStart, i);
+            }
+        }
+        if (tokens == 0) {
+            return COMMANDS;
+        }
+        if (!InputHandler.PREPARE_COMMAND.equals(command) && !InputHandler.SAVE_COMMAND.equals(command)) {
+            return null;
+        }
+        return tokens == 1 ? drinks : MODIFIERS;
+    }
+}
@@ -1,22 +1,19 @@
 package ui;
 
 import com.coffee.core.Ingredient;
-import com.coffee.core.Drink;
 import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Recipe;
+import com.coffee.order.OrderParser;
+import com.coffee.order.OrderProcessor;
+import com.coffee.order.OrderRequest;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
 import jline.TerminalFactory;
 import jline.console.ConsoleReader;
-import jline.console.completer.AggregateCompleter;
-import jline.console.completer.ArgumentCompleter;
 import jline.console.completer.Completer;
-import jline.console.completer.NullCompleter;
-import jline.console.completer.StringsCompleter;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,10 +25,16 @@ public class InputHandler {
 
     private CoffeeMachine coffeeMachine;
 
-    public final static String LIST_COMMAND = "list";
-    public final static String HELP_COMMAND = "help";
-    public final static String PREPARE_COMMAND = "prepare";
-    public final static String SAVE_COMMAND = "save";
+    private OrderProcessor orderProcessor;
+
+    private String userId = System.getProperty("user.name");
+
+    private CommandCompleter completer;
+
+    public final static String LIST_COMMAND = OrderRequest.Command.LIST.getKeyword();
+    public final static String HELP_COMMAND = OrderRequest.Command.HELP.getKeyword();
+    public final static String PREPARE_COMMAND = OrderRequest.Command.PREPARE.getKeyword();
+    public final static String SAVE_COMMAND = OrderRequest.Command.SAVE.getKeyword();
 
     public enum Command {
 
@@ -77,119 +80,101 @@ public class InputHandler {
 
         logger.info("Coffee machine ready");
 
+        OrderRequest request = new OrderRequest();
         String line;
         while ((line = console.readLine()) != null) {
-            if (line.trim().equalsIgnoreCase(LIST_COMMAND)) {
-                logger.debug("User enter command \"{}\"", LIST_COMMAND);
-                print("Available drinks are:");
-                print(coffeeMachine.getDrinks());
-            } else if (line.trim().equalsIgnoreCase(HELP_COMMAND)) {
-                logger.debug("User enter command \"{}\"", HELP_COMMAND);
-                printHelp();
-            } else if (line.startsWith(PREPARE_COMMAND)) {
-                handlePrepareCommand(line);
-            } else if (line.startsWith(SAVE_COMMAND)) {
-                handleSaveCommand(line);
-            } else {
-                logger.debug("User enter and unrecognised command");
-                print(ERROR_MESSAGE);
+            switch (OrderParser.parse(line, request).getCommand()) {
+                case LIST:
+                    logger.debug("User enter command \"{}\"", LIST_COMMAND);
+                    print("Available drinks are:");
+                    print(coffeeMachine.getDrinks());
+                    break;
+                case HELP:
+                    logger.debug("User enter command \"{}\"", HELP_COMMAND);
+                    printHelp();
+                    break;
+                case PREPARE:
+                    handlePrepareCommand(request);
+                    break;
+                case SAVE:
+                    handleSaveCommand(request);
+                    break;
+                default:
+                    logger.debug("User enter and unrecognised command");
+                    print(ERROR_MESSAGE);
             }
         }
 
     }
 
-    private void handlePrepareCommand(String line) throws IOException {
-        try {
-            Scanner scanner = new Scanner(line);
-            scanner.next();
-            String drinkName = scanner.next();
-            if (coffeeMachine.getDrinksNameList().contains(drinkName)) {
-                Drink drink = coffeeMachine.getDrinkByName(drinkName);
-                try {
-
-                    parseDrink(line, drink);
-
-                    logger.info("Preparing drink: {}", drink);
-                    coffeeMachine.prepareDrink(drink);
-                    print("Your drink is ready! Enjoy your " + drink);
-                    logger.info("Successfully prepared {}", drink);
-                    printCoffeeMachineIngredients();
-                } catch (IllegalStateException e) {
-                    String message = "Cannot prepare your drink because: " + e.getMessage() + " "
-                            + "Please ask the coffee machine guy or whichever italian you can find :)";
-                    print(message);
-                    logger.warn(message);
-                } catch (IllegalArgumentException e) {
-                    print("Cannot prepare your drink because: " + e.getMessage());
-                    logger.warn("Cannot prepare drink {} because: {}", drink, e.getMessage());
-                }
-            } else {
-                print("Sorry, drink not present. Try listing the drinks using the command \"" + LIST_COMMAND + "\"");
+    private void handlePrepareCommand(OrderRequest request) {
+        Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+        if (recipe != null) {
+            try {
+                Recipe order = recipe.customize(request.getModifiers());
+
+                logger.info("Preparing drink: {}", order);
+                orderProcessor.submitOrder(order).whenComplete((prepared, e) -> {
+                    if (e == null) {
+                        onDrinkPrepared(prepared);
+                    } else {
+                        onDrinkFailed(order, e);
+                    }
+                });
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                onDrinkFailed(recipe, e);
             }
-        } catch (NoSuchElementException e) {
-            print(ERROR_MESSAGE);
+        } else {
+            print("Sorry, drink not present. Try listing the drinks using the command \"" + LIST_COMMAND + "\"");
         }
     }
 
-    private void parseDrink(String line, Drink drink) throws IllegalStateException {
-        if (line.contains("+")) {
-            logger.info("Increasing strength to {}", drink);
-            drink.increaseStrength(1);
-        }
-        if (line.contains("-")) {
-            logger.info("Decreasing strength to {}", drink);
-            drink.decreaseStrength(1);
-        }
-        if (line.contains("m")) {
-            if (drink.canAddMilk()) {
-                logger.info("Adding milk to {}", drink);
-                drink.addMilk();
-            } else {
-                throw new IllegalStateException("The drink has already milk!");
-            }
+    private void onDrinkPrepared(Recipe drink) {
+        print("Your drink is ready! Enjoy your " + drink);
+        logger.info("Successfully prepared {}", drink);
+        try {
+            printCoffeeMachineIngredients();
+        } catch (IOException ex) {
+            logger.error("Could not print to console", ex);
         }
+    }
 
-        int sugarLumps = StringUtils.countMatches(line, " s");
-        for (int i = 0; i < sugarLumps; i++) {
-            drink.addSugar();
+    private void onDrinkFailed(Recipe drink, Throwable e) {
+        if (e instanceof IllegalStateException) {
+            String message = "Cannot prepare your drink because: " + e.getMessage() + " "
+                    + "Please ask the coffee machine guy or whichever italian you can find :)";
+            print(message);
+            logger.warn(message);
+        } else if (e instanceof RejectedExecutionException) {
+            print("The coffee machine is busy, please try again in a moment");
+            logger.warn("Cannot prepare drink {} because the order queue is full", drink);
+        } else {
+            print("Cannot prepare your drink because: " + e.getMessage());
+            logger.warn("Cannot prepare drink {} because: {}", drink, e.getMessage());
         }
     }
 
-    private void handleSaveCommand(String line) {
-        try {
-            Scanner scanner = new Scanner(line);
-            scanner.next();
-            String drinkName = scanner.next();
-
-            String favoriteName = line.substring(line.lastIndexOf(" ") + 1);
-
-            String drinkDescription = line.substring(
-                    line.lastIndexOf(drinkName),
-                    line.lastIndexOf(favoriteName));
-            if (coffeeMachine.getDrinksNameList().contains(drinkName)) {
-                Drink drink = coffeeMachine.getDrinkByName(drinkName);
-                try {
-                    parseDrink(drinkDescription, drink);
-                    drink.setName(favoriteName);
-
-                    print("Saving drink: " + drink);
-
-                    coffeeMachine.addDrink(drink);
-
-                    configureAutocomplete();
-                } catch (IllegalStateException e) {
-                    String message = "Cannot save your drink because: " + e.getMessage();
-                    print(message);
-                    logger.warn(message);
-                } catch (IllegalArgumentException e) {
-                    print("Cannot save your drink because: " + e.getMessage());
-                    logger.warn("Cannot save drink {} because: {}", drink, e.getMessage());
-                }
-            } else {
-                print("Sorry, drink not present. Try listing the drinks using the command \"" + LIST_COMMAND + "\"");
+    private void handleSaveCommand(OrderRequest request) {
+        Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+        if (recipe != null) {
+            String favoriteName = request.getFavouriteName().toString();
+            try {
+                Recipe favorite = coffeeMachine.saveFavourite(userId, favoriteName,
+                        recipe.customize(request.getModifiers()));
+
+                print("Saved drink: " + favorite);
+
+                completer.addFavouriteName(favoriteName);
+            } catch (IllegalStateException e) {
+                String message = "Cannot save your drink because: " + e.getMessage();
+                print(message);
+                logger.warn(message);
+            } catch (IllegalArgumentException e) {
+                print("Cannot save your drink because: " + e.getMessage());
+                logger.warn("Cannot save drink {} because: {}", recipe.getName(), e.getMessage());
             }
-        } catch (NoSuchElementException e) {
-            print(ERROR_MESSAGE);
+        } else {
+            print("Sorry, drink not present. Try listing the drinks using the command \"" + LIST_COMMAND + "\"");
         }
     }
 
@@ -256,116 +241,54 @@ public class InputHandler {
         return coffeeMachine;
     }
 
+    public OrderProcessor getOrderProcessor() {
+        return orderProcessor;
+    }
+
+    public void setOrderProcessor(OrderProcessor orderProcessor) {
+        this.orderProcessor = orderProcessor;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+        configureAutocomplete();
+    }
+
     public void setCoffeeMachine(CoffeeMachine coffeeMachine) {
+        if (this.coffeeMachine != null && completer != null) {
+            // the previous machine must stop feeding the completer it had
+            this.coffeeMachine.removeCatalogListener(completer);
+            completer = null;
+        }
         this.coffeeMachine = coffeeMachine;
         configureAutocomplete();
     }
 
+    /**
+     * Plugs the command completer into the console once; afterwards it
+     * follows the catalog by itself.
+     */
     private void configureAutocomplete() {
+        if (coffeeMachine == null) {
+            return;
+        }
 
         removeExistingCompleter();
 
-        List<Completer> completors = new LinkedList<>();
-        completors.add(
-                new AggregateCompleter(
-                        new ArgumentCompleter(
-                                new StringsCompleter(SAVE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("+"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("-"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("+"),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("-"),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("+"),
-                                new StringsCompleter("m"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("-"),
-                                new StringsCompleter("m"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("+"),
-                                new StringsCompleter("m"),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("-"),
-                                new StringsCompleter("m"),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("m"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("m"),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("m"),
-                                new StringsCompleter("+"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("m"),
-                                new StringsCompleter("-"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(PREPARE_COMMAND),
-                                new StringsCompleter(coffeeMachine.getDrinksNameList()),
-                                new StringsCompleter("s"),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(LIST_COMMAND),
-                                new NullCompleter()),
-                        new ArgumentCompleter(
-                                new StringsCompleter(HELP_COMMAND),
-                                new NullCompleter())
-                )
-        );
-        completors.stream().forEach((c) -> {
-            console.addCompleter(c);
-        });
+        completer = new CommandCompleter(coffeeMachine.getDrinksNameList());
+        coffeeMachine.getFavourites().getNames(userId).forEach(completer::addFavouriteName);
+        coffeeMachine.addCatalogListener(completer);
+        console.addCompleter(completer);
     }
 
     private void removeExistingCompleter() {
+        if (completer != null) {
+            coffeeMachine.removeCatalogListener(completer);
+        }
         List<Completer> completorsToRemove = new LinkedList<>();
         console.getCompleters().stream().forEach((completer) -> {
             completorsToRemove.add(completer);
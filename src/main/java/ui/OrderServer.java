@@ -0,0 +1,457 @@
+package ui;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Recipe;
+import com.coffee.order.OrderParser;
+import com.coffee.order.OrderProcessor;
+import com.coffee.order.OrderRequest;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Network front end for tablets and kiosks, listening on the loopback
+ * interface. Clients send the console commands, one per line, and get one
+ * line back for each: "OK ..." or "ERROR ...".
+ *
+ * Each connection says who it orders for with "user id"; until then it only
+ * sees the catalog drinks and cannot save favourites.
+ *
+ * A single selector thread serves every connection; orders are handed to the
+ * order processor and the reply is written once the drink is ready. A
+ * connection is not read while its order is being prepared, so replies come
+ * back in the order of the commands and a client cannot queue more than one
+ * order at a time.
+ */
+public class OrderServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderServer.class);
+
+    public static final int MAX_LINE_LENGTH = 1024;
+
+    private static final int BACKLOG = 1024;
+
+    private static final String USER_COMMAND = "user";
+
+    private static final String HELP = "user user_id | list | help | prepare drink_name [+|-] [m] [s ...]"
+            + " | save drink_name [+|-] [m] [s ...] favorite_name";
+
+    private final CoffeeMachine coffeeMachine;
+
+    private final OrderProcessor orderProcessor;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel server;
+
+    private final Queue<Connection> preparedOrders = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * Binds the server to the given port of the loopback interface; port 0
+     * picks a free one.
+     */
+    public OrderServer(CoffeeMachine coffeeMachine, OrderProcessor orderProcessor, int port) throws IOException {
+        if (coffeeMachine == null || orderProcessor == null) {
+            throw new IllegalArgumentException("OrderServer requires a coffee machine and an order processor");
+        }
+        this.coffeeMachine = coffeeMachine;
+        this.orderProcessor = orderProcessor;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this::serve, "order-server");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+        logger.info("Order server listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    private void serve() {
+        try {
+            while (!closed) {
+                selector.select();
+                Connection prepared;
+                while ((prepared = preparedOrders.poll()) != null) {
+                    try {
+                        prepared.resume();
+                    } catch (RuntimeException e) {
+                        prepared.fail(e);
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isWritable()) {
+                                connection.flush();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (RuntimeException e) {
+                            connection.fail(e);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (!closed) {
+                logger.error("Order server stopped", e);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(server);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+            connections.incrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Could not close {}", closeable, e);
+        }
+    }
+
+    /**
+     * State of one client, only touched by the selector thread except for
+     * the reply of the order being prepared, which is handed over through
+     * the preparedOrders queue.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE_LENGTH);
+
+        private final CharBuffer line = CharBuffer.allocate(MAX_LINE_LENGTH);
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final OrderRequest request = new OrderRequest();
+
+        private final Queue<ByteBuffer> output = new ArrayDeque<>();
+
+        private String userId;
+
+        private boolean preparing;
+
+        private String preparedReply;
+
+        private boolean endOfInput;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() {
+            try {
+                if (channel.read(input) < 0) {
+                    endOfInput = true;
+                }
+                process();
+                flush();
+            } catch (IOException e) {
+                logger.debug("Connection lost", e);
+                close();
+            }
+        }
+
+        private void resume() {
+            preparing = false;
+            reply(preparedReply);
+            preparedReply = null;
+            process();
+            flush();
+        }
+
+        /**
+         * Handles the complete lines read so far, stopping at an order until
+         * it is prepared.
+         */
+        private void process() {
+            while (!preparing && key.isValid()) {
+                int end = -1;
+                for (int i = 0; i < input.position(); i++) {
+                    if (input.get(i) == '\n') {
+                        end = i;
+                        break;
+                    }
+                }
+                if (end < 0 && endOfInput && input.position() > 0) {
+                    // like BufferedReader.readLine, the end of the input ends the last line
+                    end = input.position();
+                } else if (end < 0) {
+                    if (!input.hasRemaining()) {
+                        reply("ERROR Line longer than " + MAX_LINE_LENGTH + " bytes");
+                        endOfInput = true;
+                        input.clear();
+                    }
+                    return;
+                }
+                ByteBuffer bytes = input.duplicate();
+                bytes.position(0).limit(end);
+                line.clear();
+                decoder.reset();
+                decoder.decode(bytes, line, true);
+                decoder.flush(line);
+                line.flip();
+                input.flip();
+                input.position(Math.min(end + 1, input.limit()));
+                input.compact();
+                if (!identify(line)) {
+                    handle(OrderParser.parse(line, request));
+                }
+            }
+        }
+
+        /**
+         * Handles "user id", the only command that is not a console one;
+         * false for any other line.
+         */
+        private boolean identify(CharBuffer line) {
+            int start = 0;
+            while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+                start++;
+            }
+            int end = start + USER_COMMAND.length();
+            if (end > line.length() || !USER_COMMAND.contentEquals(line.subSequence(start, end))
+                    || end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+                return false;
+            }
+            String[] tokens = line.subSequence(end, line.length()).toString().trim().split("\\s+");
+            if (tokens.length != 1 || tokens[0].isEmpty()) {
+                reply("ERROR Usage: user user_id");
+            } else {
+                userId = tokens[0];
+                reply("OK User " + userId);
+            }
+            return true;
+        }
+
+        private void handle(OrderRequest request) {
+            switch (request.getCommand()) {
+                case LIST:
+                    reply("OK " + String.join(" ", coffeeMachine.getDrinksNameList()));
+                    break;
+                case HELP:
+                    reply("OK " + HELP);
+                    break;
+                case PREPARE:
+                    prepare(request);
+                    break;
+                case SAVE:
+                    save(request);
+                    break;
+                default:
+                    reply("ERROR Command incorrect");
+            }
+        }
+
+        private void prepare(OrderRequest request) {
+            Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+            if (recipe == null) {
+                reply("ERROR Drink not present: " + request.getDrinkName());
+                return;
+            }
+            Recipe order;
+            try {
+                order = recipe.customize(request.getModifiers());
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                reply("ERROR " + e.getMessage());
+                return;
+            }
+            preparing = true;
+            orderProcessor.submitOrder(order).whenComplete((prepared, e) -> {
+                if (e == null) {
+                    preparedReply = "OK Prepared " + prepared.getName();
+                } else if (e instanceof RejectedExecutionException) {
+                    preparedReply = "ERROR The coffee machine is busy, please try again in a moment";
+                } else {
+                    preparedReply = "ERROR " + e.getMessage();
+                }
+                preparedOrders.add(this);
+                selector.wakeup();
+            });
+        }
+
+        private void save(OrderRequest request) {
+            if (userId == null) {
+                reply("ERROR Send \"user user_id\" before saving a favourite");
+                return;
+            }
+            Recipe recipe = coffeeMachine.findRecipe(userId, request.getDrinkName());
+            if (recipe == null) {
+                reply("ERROR Drink not present: " + request.getDrinkName());
+                return;
+            }
+            try {
+                Recipe favourite = coffeeMachine.saveFavourite(userId, request.getFavouriteName().toString(),
+                        recipe.customize(request.getModifiers()));
+                reply("OK Saved " + favourite.getName());
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                reply("ERROR " + e.getMessage());
+            }
+        }
+
+        private void reply(String reply) {
+            output.add(ByteBuffer.wrap((reply + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+
+        /**
+         * Writes what the socket takes and decides what to wait for next: a
+         * connection with replies pending is not read, so a client that does
+         * not read its replies cannot make the server buffer them.
+         */
+        private void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                ByteBuffer pending;
+                while ((pending = output.peek()) != null) {
+                    channel.write(pending);
+                    if (pending.hasRemaining()) {
+                        break;
+                    }
+                    output.poll();
+                }
+            } catch (IOException e) {
+                logger.debug("Connection lost", e);
+                close();
+                return;
+            }
+            if (output.isEmpty()) {
+                if (preparing) {
+                    key.interestOps(0);
+                } else if (endOfInput) {
+                    close();
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * Ends a connection whose command failed unexpectedly, e.g. on a
+         * corrupted catalog record, without stopping the other ones. The
+         * error reply is written only if the socket takes it right away.
+         */
+        private void fail(RuntimeException e) {
+            logger.error("Closing a connection after an unexpected error", e);
+            if (!key.isValid()) {
+                return;
+            }
+            reply("ERROR Internal error, closing the connection");
+            try {
+                ByteBuffer pending;
+                while ((pending = output.peek()) != null) {
+                    channel.write(pending);
+                    if (pending.hasRemaining()) {
+                        break;
+                    }
+                    output.poll();
+                }
+            } catch (IOException lost) {
+                logger.debug("Connection lost", lost);
+            }
+            close();
+        }
+
+        private void close() {
+            key.cancel();
+            closeQuietly(channel);
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting and closes every connection; orders being prepared
+     * are still prepared, but their reply is lost.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        if (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            closeQuietly(server);
+            selector.close();
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package com.coffee.core;
 
+import com.coffee.dao.DrinksIndex;
+import com.coffee.dao.DrinksLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.*;
 
 import org.junit.Test;
@@ -306,4 +315,458 @@ public class CoffeeMachineTest {
             coffeeMachine.getIngredients().contains(new Ingredient("Sugar", 19)));
     }
 
+    @Test
+    public void concurrentOrdersNeverOverdrawIngredients() throws InterruptedException {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Water", 40));
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 40));
+
+        int threads = 8;
+        AtomicInteger prepared = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 10; i++) {
+                        coffeeMachine.prepareDrink(new Drink("Espresso")
+                                .addIngredient(new Ingredient("Coffee", 2))
+                                .addIngredient(new Ingredient("Water", 2)));
+                        prepared.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    // out of stock
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(20, prepared.get());
+        assertEquals(0, coffeeMachine.getIngredientsMap().get("Water").getQuantity());
+        assertEquals(0, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+    }
+
+    @Test
+    public void failedPreparationDoesNotConsumeAnyIngredient() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 20));
+        coffeeMachine.addIngredient(new Ingredient("Water", 20));
+        coffeeMachine.addIngredient(new Ingredient("Milk", 1));
+
+        Drink cappuccino = new Drink("Cappuccino")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2))
+                .addIngredient(new Ingredient("Milk", 2));
+
+        try {
+            coffeeMachine.prepareDrink(cappuccino);
+            fail("Not enough milk for a cappuccino");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(20, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(20, coffeeMachine.getIngredientsMap().get("Water").getQuantity());
+        assertEquals(1, coffeeMachine.getIngredientsMap().get("Milk").getQuantity());
+    }
+
+    @Test
+    public void failingOrderNeverHidesStockFromAnotherOrder() throws InterruptedException {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 2));
+        coffeeMachine.addIngredient(new Ingredient("Water", 50));
+        coffeeMachine.addIngredient(new Ingredient("Milk", 0));
+        Recipe cappuccino = Recipe.of(new Drink("Cappuccino")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2))
+                .addIngredient(new Ingredient("Milk", 2)));
+        Recipe espresso = Recipe.of(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2)));
+
+        AtomicInteger cappuccinos = new AtomicInteger();
+        Thread competitor = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    coffeeMachine.prepareDrink(cappuccino);
+                } catch (IllegalStateException e) {
+                    cappuccinos.incrementAndGet();
+                }
+            }
+        });
+        competitor.start();
+        try {
+            while (cappuccinos.get() == 0) {
+                Thread.yield();
+            }
+            for (int i = 0; i < 20000; i++) {
+                coffeeMachine.prepareDrink(espresso);
+                coffeeMachine.getIngredientsMap().get("Coffee").increaseQuantity(2);
+                coffeeMachine.getIngredientsMap().get("Water").increaseQuantity(2);
+            }
+        } finally {
+            competitor.interrupt();
+            competitor.join();
+        }
+        assertTrue(cappuccinos.get() > 0);
+    }
+
+    @Test
+    public void addedDrinkIsVisibleWithItsRecipe() throws InterruptedException {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        int drinks = 20000;
+        AtomicInteger missingRecipes = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < drinks; ) {
+                if (coffeeMachine.containsDrink(drinkName(i))) {
+                    try {
+                        coffeeMachine.getRecipe(drinkName(i));
+                    } catch (IllegalArgumentException e) {
+                        missingRecipes.incrementAndGet();
+                    }
+                    i++;
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < drinks; i++) {
+            coffeeMachine.addDrink(new Drink(drinkName(i)).addIngredient(new Ingredient("Water", 1)));
+        }
+        reader.join();
+        assertEquals(0, missingRecipes.get());
+    }
+
+    private static String drinkName(int i) {
+        StringBuilder name = new StringBuilder("Drink");
+        for (; i > 0; i /= 26) {
+            name.append((char) ('a' + i % 26));
+        }
+        return name.toString();
+    }
+
+    @Test
+    public void missingIngredientDoesNotConsumeAnyIngredient() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 20));
+
+        Drink wEspresso = new Drink("WEspresso")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Wine", 1));
+
+        try {
+            coffeeMachine.prepareDrink(wEspresso);
+            fail("Wine is not in the coffee machine");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(20, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+    }
+
+    @Test
+    public void prepareBatchDeductsTheWholeBatch() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.init();
+
+        List<Drink> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(coffeeMachine.getDrinkByName("Espresso"));
+        }
+
+        BatchResult result = coffeeMachine.prepareBatch(batch);
+
+        assertTrue(result.isComplete());
+        assertEquals(10, result.getFulfilled().size());
+        assertEquals(20, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(20, coffeeMachine.getIngredientsMap().get("Water").getQuantity());
+    }
+
+    @Test
+    public void prepareBatchReportsOrdersThatCouldNotBeFulfilled() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 5));
+        coffeeMachine.addIngredient(new Ingredient("Water", 20));
+
+        Drink espresso = new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2));
+        Drink americano = new Drink("Americano")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Water", 4));
+        Drink latte = new Drink("Latte")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Milk", 2));
+
+        List<Drink> batch = new ArrayList<>();
+        batch.add(espresso);
+        batch.add(espresso);
+        batch.add(espresso);
+        batch.add(americano);
+        batch.add(latte);
+
+        BatchResult result = coffeeMachine.prepareBatch(batch);
+
+        assertFalse(result.isComplete());
+        assertEquals(3, result.getFulfilled().size());
+        assertEquals(2, result.getRejected().size());
+        assertTrue(result.getRejected().contains(latte));
+        assertEquals(0, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(12, coffeeMachine.getIngredientsMap().get("Water").getQuantity());
+    }
+
+    @Test
+    public void getRecipeReturnsTheSharedRecipe() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.init();
+
+        assertSame(coffeeMachine.getRecipe("Espresso"), coffeeMachine.getRecipe("Espresso"));
+    }
+
+    @Test
+    public void prepareACustomisedRecipeWorks() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.init();
+
+        Recipe espresso = coffeeMachine.getRecipe("Espresso").customize(DrinkModifiers.of(1, true, 1));
+        coffeeMachine.prepareDrink(espresso);
+
+        assertEquals(37, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(38, coffeeMachine.getIngredientsMap().get("Water").getQuantity());
+        assertEquals(39, coffeeMachine.getIngredientsMap().get("Milk").getQuantity());
+        assertEquals(19, coffeeMachine.getIngredientsMap().get("Sugar").getQuantity());
+    }
+
+
+    @Test
+    public void reloadKeepsUnchangedRecipesAndReplacesChangedOnes() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        Recipe espresso = machine.getRecipe("Espresso");
+        Recipe coffee = machine.getRecipe("Coffee");
+
+        machine.reloadDrinks(Arrays.asList(
+                new Drink("Espresso")
+                        .addIngredient(new Ingredient("Coffee", 2))
+                        .addIngredient(new Ingredient("Water", 2)),
+                new Drink("Coffee")
+                        .addIngredient(new Ingredient("Coffee", 3))
+                        .addIngredient(new Ingredient("Water", 4)),
+                new Drink("Tea")
+                        .addIngredient(new Ingredient("Water", 4))));
+
+        assertSame(espresso, machine.getRecipe("Espresso"));
+        assertNotSame(coffee, machine.getRecipe("Coffee"));
+        assertEquals(3, machine.getRecipe("Coffee").getQuantity(0));
+        assertEquals(3, machine.getDrinks().size());
+        assertTrue(machine.getDrinksNameList().contains("Tea"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reloadDropsRemovedDrinks() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+
+        machine.reloadDrinks(Arrays.asList(new Drink("Tea")
+                .addIngredient(new Ingredient("Water", 4))));
+
+        machine.getRecipe("Chocolate");
+    }
+
+    @Test
+    public void reloadKeepsSavedDrinks() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        Drink strong = machine.getRecipe("Espresso").customize(DrinkModifiers.of(1, false, 0)).toDrink();
+        strong.setName("Strong");
+        machine.addDrink(strong);
+
+        machine.reloadDrinks(Arrays.asList(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2))));
+
+        assertEquals(3, machine.getRecipe("Strong").getQuantity(0));
+    }
+
+    @Test
+    public void failedReloadKeepsTheCurrentCatalog() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        Drink tea = new Drink("Tea").addIngredient(new Ingredient("Water", 4));
+
+        try {
+            machine.reloadDrinks(Arrays.asList(tea, tea));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(4, machine.getDrinks().size());
+        }
+    }
+
+    @Test
+    public void ordersRunWhileTheCatalogIsReloaded() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.addIngredient(new Ingredient("Water", 50));
+        machine.addIngredient(new Ingredient("Coffee", 50));
+        machine.loadDrinks(Arrays.asList(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Water", 1))));
+        List<Drink> catalog = Arrays.asList(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Water", 1)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> reloads = executor.submit(() -> {
+            for (int i = 0; i < 1000; i++) {
+                machine.reloadDrinks(i % 2 == 0 ? catalog : new ArrayList<>(catalog));
+            }
+        });
+        Future<?> orders = executor.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                machine.prepareDrink(machine.getRecipe("Espresso"));
+            }
+        });
+        orders.get(10, TimeUnit.SECONDS);
+        reloads.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(0, machine.getIngredientsMap().get("Coffee").getQuantity());
+    }
+
+
+    private static final class IndexedCatalog implements DrinksLoader, DrinksIndex {
+
+        private final List<Drink> drinks;
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        IndexedCatalog(Drink... drinks) {
+            this.drinks = Arrays.asList(drinks);
+        }
+
+        @Override
+        public List<Drink> loadDrinks() {
+            return drinks;
+        }
+
+        @Override
+        public int size() {
+            return drinks.size();
+        }
+
+        @Override
+        public String getName(int index) {
+            return drinks.get(index).getName();
+        }
+
+        @Override
+        public Drink getDrink(int index) {
+            reads.incrementAndGet();
+            return new Drink(drinks.get(index));
+        }
+    }
+
+    private static IndexedCatalog indexedCatalog() {
+        return new IndexedCatalog(
+                new Drink("Espresso")
+                        .addIngredient(new Ingredient("Coffee", 2))
+                        .addIngredient(new Ingredient("Water", 2)),
+                new Drink("Coffee")
+                        .addIngredient(new Ingredient("Coffee", 2))
+                        .addIngredient(new Ingredient("Water", 4)),
+                new Drink("Tea")
+                        .addIngredient(new Ingredient("Water", 4)));
+    }
+
+    @Test
+    public void lazyCatalogMaterialisesRecipesOnFirstOrder() {
+        IndexedCatalog catalog = indexedCatalog();
+        CoffeeMachine machine = new CoffeeMachine(catalog, 2);
+        machine.init();
+
+        assertEquals(0, catalog.reads.get());
+        assertEquals(Arrays.asList("Espresso", "Coffee", "Tea"), machine.getDrinksNameList());
+
+        machine.prepareDrink(machine.getRecipe("Espresso"));
+        machine.prepareDrink(machine.getRecipe("Espresso"));
+
+        assertEquals(1, catalog.reads.get());
+        assertEquals(1, machine.getRecipeCache().getHits());
+        assertEquals(1, machine.getRecipeCache().getMisses());
+        assertEquals(new Drink("Tea").addIngredient(new Ingredient("Water", 4)), machine.getDrinkByName("Tea"));
+    }
+
+    @Test
+    public void lazyCatalogKeepsSavedDrinks() {
+        CoffeeMachine machine = new CoffeeMachine(indexedCatalog(), 2);
+        machine.init();
+        Drink sweet = machine.getRecipe("Tea").customize(DrinkModifiers.of(0, false, 2)).toDrink();
+        sweet.setName("Sweet");
+        machine.addDrink(sweet);
+
+        machine.reloadDrinks(indexedCatalog());
+
+        assertEquals(4, machine.getDrinks().size());
+        assertEquals(sweet, machine.getDrinkByName("Sweet"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lazyCatalogRejectsSavingAnIndexedName() {
+        CoffeeMachine machine = new CoffeeMachine(indexedCatalog(), 2);
+        machine.init();
+
+        machine.addDrink(new Drink("Tea").addIngredient(new Ingredient("Water", 1)));
+    }
+
+    @Test
+    public void recipeCacheIsNullForAnEagerCatalog() {
+        CoffeeMachine machine = new CoffeeMachine(indexedCatalog());
+        machine.init();
+
+        assertNull(machine.getRecipeCache());
+        assertEquals(3, machine.getDrinks().size());
+    }
+
+    @Test
+    public void catalogListenerSeesAddsAndReloads() {
+        CoffeeMachine machine = new CoffeeMachine();
+        List<String> events = new ArrayList<>();
+        machine.addCatalogListener(new CatalogListener() {
+            @Override
+            public void onDrinkAdded(String drinkName) {
+                events.add("added " + drinkName);
+            }
+
+            @Override
+            public void onCatalogReloaded(List<String> drinkNames) {
+                events.add("reloaded " + drinkNames);
+            }
+        });
+
+        machine.addDrink(new Drink("Tea").addIngredient(new Ingredient("Water", 4)));
+        machine.reloadDrinks(Arrays.asList(new Drink("Lemonade").addIngredient(new Ingredient("Water", 4))));
+
+        assertEquals(Arrays.asList("added Tea", "reloaded [Lemonade, Tea]"), events);
+    }
+
+    @Test
+    public void hasStockForFollowsTheStock() {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 2), new Ingredient("Water", 4)));
+        Recipe espresso = Recipe.of(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2)));
+        Recipe latte = Recipe.of(new Drink("Latte")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Milk", 2)));
+
+        assertTrue(machine.hasStockFor(espresso));
+        assertFalse(machine.hasStockFor(latte));
+
+        machine.prepareDrink(espresso);
+
+        assertFalse(machine.hasStockFor(espresso));
+    }
 }
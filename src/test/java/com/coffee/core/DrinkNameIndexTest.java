@@ -0,0 +1,66 @@
+package com.coffee.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class DrinkNameIndexTest {
+
+    @Test
+    public void namesKeepTheirOrder() {
+        DrinkNameIndex index = new DrinkNameIndex(Arrays.asList("Espresso", "Coffee"))
+                .with("Cappuccino");
+
+        assertEquals(Arrays.asList("Espresso", "Coffee", "Cappuccino"), index.getNames());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void prefixQueriesAreSorted() {
+        DrinkNameIndex index = new DrinkNameIndex(Arrays.asList("Espresso", "Coffee", "Chocolate"))
+                .with("Cappuccino")
+                .with("Americano");
+
+        assertEquals(Arrays.asList("Cappuccino", "Chocolate", "Coffee"), index.withPrefix("C"));
+        assertEquals(Arrays.asList("Chocolate"), index.withPrefix("Ch"));
+        assertEquals(Collections.emptyList(), index.withPrefix("Mocha"));
+        assertEquals(5, index.withPrefix("").size());
+    }
+
+    @Test
+    public void addingANameLeavesTheSnapshotUnchanged() {
+        DrinkNameIndex index = new DrinkNameIndex(Arrays.asList("Espresso"));
+
+        index.with("Coffee");
+
+        assertEquals(Collections.singletonList("Espresso"), index.getNames());
+    }
+
+    @Test
+    public void coffeeMachineKeepsItsIndexUpToDate() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        DrinkNameIndex before = machine.getDrinkNameIndex();
+
+        machine.addDrink(new Drink("Cortado")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Milk", 1)));
+
+        assertTrue(machine.containsDrink("Cortado"));
+        assertFalse(machine.containsDrink("Mocha"));
+        assertEquals(4, before.size());
+        assertEquals("Cortado", machine.getDrinksNameList().get(4));
+        assertEquals(Arrays.asList("Coffee", "Cortado"), machine.getDrinkNames("Co"));
+    }
+
+    @Test
+    public void findReturnsTheIndexedName() {
+        DrinkNameIndex index = new DrinkNameIndex(Arrays.asList("Espresso", "Coffee", "Cappuccino"));
+
+        assertSame(index.getNames().get(1), index.find(new StringBuilder("Coffee")));
+        assertEquals("Cappuccino", index.find("prepare Cappuccino m".subSequence(8, 18)));
+        assertNull(index.find("Coff"));
+        assertNull(index.find("Coffee2"));
+    }
+}
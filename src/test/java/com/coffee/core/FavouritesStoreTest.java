@@ -0,0 +1,107 @@
+package com.coffee.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class FavouritesStoreTest {
+
+    private static Recipe favourite(String name, int coffee) {
+        return Recipe.of(new Drink(name)
+                .addIngredient(new Ingredient("Coffee", coffee))
+                .addIngredient(new Ingredient("Water", 2)));
+    }
+
+    @Test
+    public void favouritesAreKeptPerUser() {
+        FavouritesStore store = new FavouritesStore();
+
+        store.save("alice", favourite("Strong", 3));
+        store.save("bob", favourite("Strong", 1));
+        store.save("alice", favourite("Double", 4));
+
+        assertEquals(3, store.find("alice", "Strong").getQuantity(0));
+        assertEquals(1, store.find("bob", "Strong").getQuantity(0));
+        assertEquals(Arrays.asList("Strong", "Double"), store.getNames("alice"));
+        assertNull(store.find("carol", "Strong"));
+        assertTrue(store.getNames("carol").isEmpty());
+        assertEquals(2, store.getUsersCount());
+    }
+
+    @Test
+    public void savingTheSameNameReplacesTheFavourite() {
+        FavouritesStore store = new FavouritesStore();
+
+        store.save("alice", favourite("Strong", 3));
+        store.save("alice", favourite("Strong", 4));
+
+        assertEquals(4, store.find("alice", "Strong").getQuantity(0));
+        assertEquals(1, store.getNames("alice").size());
+    }
+
+    @Test
+    public void listenerSeesEverySave() {
+        FavouritesStore store = new FavouritesStore();
+        List<String> saved = new ArrayList<>();
+        store.setListener((userId, favourite) -> saved.add(userId + ":" + favourite.getName()));
+
+        store.save("alice", favourite("Strong", 3));
+        store.save("bob", favourite("Double", 4));
+
+        assertEquals(Arrays.asList("alice:Strong", "bob:Double"), saved);
+    }
+
+    @Test
+    public void refusedSaveIsUndone() {
+        FavouritesStore store = new FavouritesStore();
+        store.save("alice", favourite("Strong", 3));
+        store.setListener((userId, favourite) -> {
+            throw new IllegalStateException("The journal is not open");
+        });
+
+        try {
+            store.save("alice", favourite("Strong", 4));
+            fail("The refused save should fail");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            store.save("bob", favourite("Double", 4));
+            fail("The refused save should fail");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(3, store.find("alice", "Strong").getQuantity(0));
+        assertNull(store.find("bob", "Double"));
+        assertEquals(1, store.getUsersCount());
+    }
+
+    @Test
+    public void favouritesDoNotGrowTheCatalog() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+
+        Recipe saved = machine.saveFavourite("alice", "Strong",
+                machine.getRecipe("Espresso").customize(DrinkModifiers.of(1, false, 0)));
+
+        assertEquals(4, machine.getDrinks().size());
+        assertFalse(machine.getDrinksNameList().contains("Strong"));
+        assertSame(saved, machine.findRecipe("alice", "Strong"));
+        assertNull(machine.findRecipe("bob", "Strong"));
+        assertNotNull(machine.findRecipe("bob", "Espresso"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void favouriteCannotTakeACatalogName() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+
+        machine.saveFavourite("alice", "Coffee", machine.getRecipe("Espresso"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void favouriteRequiresAUser() {
+        new FavouritesStore().save(null, favourite("Strong", 3));
+    }
+}
@@ -0,0 +1,25 @@
+package com.coffee.core;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IngredientRegistryTest {
+
+    @Test
+    public void sameNameGetsTheSameId() {
+        assertEquals(IngredientRegistry.idOf("Cinnamon"), IngredientRegistry.idOf("Cinnamon"));
+    }
+
+    @Test
+    public void differentNamesGetDifferentIds() {
+        assertNotEquals(IngredientRegistry.idOf("Vanilla"), IngredientRegistry.idOf("Caramel"));
+    }
+
+    @Test
+    public void idsAreDenseAndMapBackToTheirName() {
+        int id = IngredientRegistry.idOf("Hazelnut");
+
+        assertTrue(id < IngredientRegistry.size());
+        assertEquals("Hazelnut", IngredientRegistry.nameOf(id));
+    }
+}
@@ -0,0 +1,49 @@
+package com.coffee.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class RecipeCacheTest {
+
+    private static final Function<String, Recipe> RECIPES = name -> Recipe.of(new Drink(name)
+            .addIngredient(new Ingredient("Water", 2)));
+
+    @Test
+    public void secondLookupIsAHit() {
+        RecipeCache cache = new RecipeCache(2);
+
+        Recipe first = cache.get("Tea", RECIPES);
+        Recipe second = cache.get("Tea", RECIPES);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedRecipeIsEvicted() {
+        RecipeCache cache = new RecipeCache(2);
+        AtomicInteger materialised = new AtomicInteger();
+        Function<String, Recipe> counting = name -> {
+            materialised.incrementAndGet();
+            return RECIPES.apply(name);
+        };
+
+        cache.get("Tea", counting);
+        cache.get("Lemonade", counting);
+        cache.get("Tea", counting);
+        cache.get("Water", counting);
+        cache.get("Tea", counting);
+        cache.get("Lemonade", counting);
+
+        assertEquals(2, cache.size());
+        assertEquals(4, materialised.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recipeCacheRequiresAPositiveCapacity() {
+        new RecipeCache(0);
+    }
+}
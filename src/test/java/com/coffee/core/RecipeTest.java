@@ -0,0 +1,91 @@
+package com.coffee.core;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RecipeTest {
+
+    private static Recipe espresso() {
+        return Recipe.of(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2)));
+    }
+
+    @Test
+    public void recipeKeepsTheDrinkIngredients() {
+        Recipe recipe = espresso();
+
+        assertEquals("Espresso", recipe.getName());
+        assertEquals(2, recipe.getIngredientsCount());
+        assertEquals("Coffee", recipe.getIngredientName(0));
+        assertEquals(2, recipe.getQuantity(0));
+        assertEquals("Espresso [Coffee [2], Water [2]]", recipe.toString());
+    }
+
+    @Test
+    public void noModifiersReturnTheSameRecipe() {
+        Recipe recipe = espresso();
+
+        assertSame(recipe, recipe.customize(DrinkModifiers.NONE));
+    }
+
+    @Test
+    public void equalCustomisationsShareOneInstance() {
+        Recipe recipe = espresso();
+
+        Recipe first = recipe.customize(DrinkModifiers.of(1, true, 2));
+        Recipe second = recipe.customize(DrinkModifiers.of(1, true, 2));
+
+        assertSame(first, second);
+        assertEquals("Espresso [Coffee [3], Water [2], Milk [1], Sugar [2]]", first.toString());
+        assertEquals("Espresso [Coffee [2], Water [2]]", recipe.toString());
+    }
+
+    @Test
+    public void decreaseStrengthDecreasesTheFirstIngredient() {
+        Recipe weak = espresso().customize(DrinkModifiers.of(-1, false, 0));
+
+        assertEquals(1, weak.getQuantity(0));
+        assertEquals(2, weak.getQuantity(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotAddMilkIfRecipeHasMilk() {
+        Recipe cappuccino = Recipe.of(new Drink("Cappuccino")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Milk", 2)));
+
+        cappuccino.customize(DrinkModifiers.of(0, true, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotAddTooMuchSugar() {
+        Recipe sweet = Recipe.of(new Drink("Sweet")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Sugar", 2)));
+
+        sweet.customize(DrinkModifiers.of(0, false, 2));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotOrderMoreThanThreeLumpsOfSugar() {
+        DrinkModifiers.of(0, false, 4);
+    }
+
+    @Test
+    public void modifiersAreShared() {
+        assertSame(DrinkModifiers.of(1, false, 3), DrinkModifiers.of(1, false, 3));
+        assertNotSame(DrinkModifiers.of(1, false, 3), DrinkModifiers.of(1, true, 3));
+    }
+
+    @Test
+    public void toDrinkCreatesAnIndependentDrink() {
+        Recipe recipe = espresso();
+        Drink drink = recipe.toDrink();
+
+        drink.increaseStrength(1);
+
+        assertEquals(new Ingredient("Coffee", 3), drink.getIngredientByName("Coffee"));
+        assertEquals(2, recipe.getQuantity(0));
+    }
+}
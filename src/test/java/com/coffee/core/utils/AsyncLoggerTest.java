@@ -0,0 +1,134 @@
+package com.coffee.core.utils;
+
+import com.coffee.utils.AsyncLogger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AsyncLoggerTest {
+
+    @Test
+    public void flushWaitsForBufferedEvents() {
+        AsyncLogger logger = AsyncLogger.getLogger(AsyncLoggerTest.class);
+        for (int i = 0; i < 100; i++) {
+            logger.info("Event {} of {}", i, 100);
+        }
+
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void sampledLoggerAcceptsEvents() {
+        AsyncLogger logger = AsyncLogger.getLogger(AsyncLoggerTest.class, "test", 10);
+        for (int i = 0; i < 100; i++) {
+            logger.debug("Sampled event {}", i);
+        }
+
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampleRateMustBePositive() {
+        AsyncLogger.getLogger(AsyncLoggerTest.class, "test", 0);
+    }
+
+    /**
+     * Holds the writer thread while it formats this argument.
+     */
+    private static final class BlockingArgument extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CountDownLatch writing = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getMessage() {
+            writing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "released";
+        }
+    }
+
+    private static BlockingArgument blockWriter(AsyncLogger logger) throws InterruptedException {
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+        BlockingArgument blocking = new BlockingArgument();
+        logger.warn("Holding the writer {}", blocking);
+        assertTrue(blocking.writing.await(5, TimeUnit.SECONDS));
+        return blocking;
+    }
+
+    @Test
+    public void argumentsAreFormattedWhenLogged() {
+        String[] formattedBy = new String[1];
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formattedBy[0] = Thread.currentThread().getName();
+                return "argument";
+            }
+        };
+
+        AsyncLogger.getLogger(AsyncLoggerTest.class).info("Formatted {}", argument);
+
+        assertEquals(Thread.currentThread().getName(), formattedBy[0]);
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void sampledLoggerKeepsOneEventInN() throws InterruptedException {
+        AsyncLogger logger = AsyncLogger.getLogger(AsyncLoggerTest.class, "sampling", 10);
+        BlockingArgument blocking = blockWriter(AsyncLogger.getLogger(AsyncLoggerTest.class));
+        try {
+            for (int i = 0; i < 100; i++) {
+                logger.info("Sampled event {}", i);
+            }
+
+            assertEquals(1 + 10, AsyncLogger.getPendingEvents());
+        } finally {
+            blocking.release.countDown();
+        }
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void sampleRateCanBeChanged() throws InterruptedException {
+        AsyncLogger logger = AsyncLogger.getLogger(AsyncLoggerTest.class);
+        logger.setSampleRate(20);
+        BlockingArgument blocking = blockWriter(AsyncLogger.getLogger(AsyncLoggerTest.class));
+        try {
+            for (int i = 0; i < 100; i++) {
+                logger.info("Sampled event {}", i);
+            }
+
+            assertEquals(1 + 5, AsyncLogger.getPendingEvents());
+        } finally {
+            blocking.release.countDown();
+        }
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fullBufferCountsDroppedEvents() throws InterruptedException {
+        AsyncLogger logger = AsyncLogger.getLogger(AsyncLoggerTest.class);
+        BlockingArgument blocking = blockWriter(logger);
+        long dropped = AsyncLogger.getDroppedEvents();
+        try {
+            for (int i = 0; i < AsyncLogger.getBufferSize() + 50; i++) {
+                logger.debug("Buffered event {}", i);
+            }
+
+            assertEquals(dropped + 50, AsyncLogger.getDroppedEvents());
+            assertEquals(1 + AsyncLogger.getBufferSize(), AsyncLogger.getPendingEvents());
+        } finally {
+            blocking.release.countDown();
+        }
+        assertTrue(AsyncLogger.flush(5, TimeUnit.SECONDS));
+    }
+}
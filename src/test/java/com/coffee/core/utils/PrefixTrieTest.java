@@ -0,0 +1,41 @@
+package com.coffee.core.utils;
+
+import com.coffee.utils.PrefixTrie;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void wordsWithAPrefixAreSorted() {
+        PrefixTrie trie = new PrefixTrie(Arrays.asList("Espresso", "Coffee", "Cappuccino", "Chocolate"));
+
+        assertEquals(Arrays.asList("Cappuccino", "Chocolate", "Coffee"), trie.withPrefix("C", 10));
+        assertEquals(Arrays.asList("Espresso"), trie.withPrefix("Esp", 10));
+        assertEquals(Collections.emptyList(), trie.withPrefix("Mocha", 10));
+    }
+
+    @Test
+    public void prefixQueriesStopAtTheLimit() {
+        PrefixTrie trie = new PrefixTrie(Arrays.asList("Espresso", "Coffee", "Cappuccino", "Chocolate"));
+
+        assertEquals(Arrays.asList("Cappuccino", "Chocolate"), trie.withPrefix("C", 2));
+        assertEquals(Collections.emptyList(), trie.withPrefix("C", 0));
+    }
+
+    @Test
+    public void wordsCanBePrefixesOfOtherWords() {
+        PrefixTrie trie = new PrefixTrie();
+
+        assertTrue(trie.add("Coffee"));
+        assertTrue(trie.add("CoffeeLatte"));
+        assertFalse(trie.add("Coffee"));
+
+        assertTrue(trie.contains("Coffee"));
+        assertFalse(trie.contains("Coff"));
+        assertEquals(2, trie.size());
+        assertEquals(Arrays.asList("Coffee", "CoffeeLatte"), trie.withPrefix("Coffee", 10));
+    }
+}
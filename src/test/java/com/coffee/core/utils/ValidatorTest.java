@@ -1,7 +1,12 @@
 package com.coffee.core.utils;
 
+import com.coffee.utils.ValidationRules;
 import com.coffee.utils.Validator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 public class ValidatorTest {
 
@@ -45,4 +50,50 @@ public class ValidatorTest {
         Validator.validateString(" ");
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void nonAsciiStringFails() {
+        Validator.validateString("Caff\u00e8");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLongStringFails() {
+        Validator.validateString("abcdefghijabcdefghijabcdefghijk");
+    }
+
+    @Test
+    public void customCharsetIsApplied() {
+        ValidationRules rules = new ValidationRules(10, "a-z0-9_", Collections.<String>emptySet());
+
+        rules.validate("double_2");
+        try {
+            rules.validate("Double");
+            fail("Uppercase letters are not in the charset");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservedNameFails() {
+        new ValidationRules(30, "a-zA-Z", Arrays.asList("list", "help")).validate("help");
+    }
+
+    @Test
+    public void rulesAreReadFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(ValidationRules.MAX_LENGTH_PROPERTY, "5");
+        properties.setProperty(ValidationRules.RESERVED_NAMES_PROPERTY, "list, save");
+
+        ValidationRules rules = ValidationRules.fromProperties(properties);
+
+        assertEquals(5, rules.getMaxLength());
+        assertTrue(rules.getReservedNames().contains("save"));
+        rules.validate("Milk");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCharsetFails() {
+        new ValidationRules(30, "z-a", Collections.<String>emptySet());
+    }
+
 }
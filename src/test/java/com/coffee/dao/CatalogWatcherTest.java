@@ -0,0 +1,65 @@
+package com.coffee.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CatalogWatcherTest {
+
+    private static void write(File file, String line) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, "ISO-8859-1")) {
+            out.println(line);
+        }
+    }
+
+    @Test
+    public void changingTheCatalogRunsTheReload() throws Exception {
+        File directory = Files.createTempDirectory("catalogs").toFile();
+        File catalog = new File(directory, "drinks.properties");
+        write(catalog, "drinks.number=0");
+        CountDownLatch reloaded = new CountDownLatch(1);
+
+        try (CatalogWatcher watcher = new CatalogWatcher(Collections.singletonList(catalog),
+                reloaded::countDown, 50)) {
+            watcher.start();
+            write(catalog, "drinks.number=1");
+
+            assertTrue(reloaded.await(30, TimeUnit.SECONDS));
+        } finally {
+            catalog.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void otherFilesAreIgnored() throws Exception {
+        File directory = Files.createTempDirectory("catalogs").toFile();
+        File catalog = new File(directory, "drinks.properties");
+        File other = new File(directory, "notes.txt");
+        write(catalog, "drinks.number=0");
+        CountDownLatch reloaded = new CountDownLatch(1);
+
+        try (CatalogWatcher watcher = new CatalogWatcher(Arrays.asList(catalog), reloaded::countDown, 50)) {
+            watcher.start();
+            write(other, "coffee");
+
+            assertFalse(reloaded.await(500, TimeUnit.MILLISECONDS));
+        } finally {
+            other.delete();
+            catalog.delete();
+            directory.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void catalogWatcherRequiresFiles() throws IOException {
+        new CatalogWatcher(Collections.emptyList(), () -> { });
+    }
+}
@@ -0,0 +1,71 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompositeDrinksLoaderTest {
+
+    private static Drink drink(String name, int coffee) {
+        return new Drink(name).addIngredient(new Ingredient("Coffee", coffee));
+    }
+
+    private static DrinksLoader regional() {
+        return () -> Arrays.asList(drink("Espresso", 2), drink("Ristretto", 1));
+    }
+
+    private static DrinksLoader seasonal() {
+        return () -> {
+            try {
+                // finishes after the regional catalog
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Arrays.asList(drink("Espresso", 3), drink("Pumpkin", 2));
+        };
+    }
+
+    @Test
+    public void lastCatalogWins() {
+        List<Drink> drinks = new CompositeDrinksLoader(Arrays.asList(regional(), seasonal()),
+                CompositeDrinksLoader.ConflictPolicy.LAST_WINS).loadDrinks();
+
+        assertEquals(Arrays.asList(drink("Espresso", 3), drink("Ristretto", 1), drink("Pumpkin", 2)), drinks);
+    }
+
+    @Test
+    public void firstCatalogWins() {
+        List<Drink> drinks = new CompositeDrinksLoader(Arrays.asList(seasonal(), regional()),
+                CompositeDrinksLoader.ConflictPolicy.FIRST_WINS, new ForkJoinPool(2)).loadDrinks();
+
+        assertEquals(Arrays.asList(drink("Espresso", 3), drink("Pumpkin", 2), drink("Ristretto", 1)), drinks);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void conflictsCanBeRejected() {
+        new CompositeDrinksLoader(Arrays.asList(regional(), seasonal()),
+                CompositeDrinksLoader.ConflictPolicy.FAIL).loadDrinks();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void loaderFailuresArePropagated() {
+        DrinksLoader corrupted = () -> {
+            throw new RuntimeException("Drinks configuration file corrupted");
+        };
+        new CompositeDrinksLoader(Arrays.asList(regional(), corrupted),
+                CompositeDrinksLoader.ConflictPolicy.LAST_WINS).loadDrinks();
+    }
+
+    @Test
+    public void loaderIsChosenFromTheFileExtension() throws Exception {
+        File properties = new File(getClass().getResource("/drinks.properties").toURI());
+
+        assertTrue(DrinksLoaders.forFile(properties) instanceof StreamingDrinksLoader);
+    }
+}
@@ -0,0 +1,126 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import com.coffee.core.FavouritesStore;
+import com.coffee.core.Ingredient;
+import com.coffee.core.Recipe;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FavouritesJournalTest {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("favourites").toFile();
+        directory.deleteOnExit();
+        new File(directory, "favourites.journal").deleteOnExit();
+        new File(directory, "favourites.snapshot").deleteOnExit();
+    }
+
+    private static Recipe strongEspresso() {
+        return Recipe.of(new Drink("Strong")
+                .addIngredient(new Ingredient("Coffee", 3))
+                .addIngredient(new Ingredient("Water", 2)));
+    }
+
+    private FavouritesStore reopen() throws IOException {
+        FavouritesStore store = new FavouritesStore();
+        try (FavouritesJournal journal = new FavouritesJournal(directory, store)) {
+            journal.open("shared");
+        }
+        return store;
+    }
+
+    @Test
+    public void savedFavouritesSurviveARestart() throws Exception {
+        FavouritesStore store = new FavouritesStore();
+        try (FavouritesJournal journal = new FavouritesJournal(directory, store)) {
+            journal.open("shared");
+            store.save("alice", strongEspresso());
+        }
+
+        FavouritesStore recovered = reopen();
+
+        assertEquals(strongEspresso(), recovered.find("alice", "Strong"));
+        assertNull(recovered.find("bob", "Strong"));
+    }
+
+    @Test
+    public void savingTheSameNameReplacesTheFavourite() throws Exception {
+        Recipe sweet = Recipe.of(new Drink("Strong")
+                .addIngredient(new Ingredient("Coffee", 3))
+                .addIngredient(new Ingredient("Sugar", 2)));
+        FavouritesStore store = new FavouritesStore();
+        try (FavouritesJournal journal = new FavouritesJournal(directory, store, 64)) {
+            journal.open("shared");
+            for (int i = 0; i < 10; i++) {
+                store.save("alice", strongEspresso());
+            }
+            store.save("alice", sweet);
+        }
+
+        FavouritesStore recovered = reopen();
+
+        assertEquals(1, recovered.getNames("alice").size());
+        assertEquals(sweet, recovered.find("alice", "Strong"));
+    }
+
+    @Test
+    public void tornLastSaveIsDropped() throws Exception {
+        FavouritesStore store = new FavouritesStore();
+        try (FavouritesJournal journal = new FavouritesJournal(directory, store)) {
+            journal.open("shared");
+            store.save("alice", strongEspresso());
+            store.save("alice", Recipe.of(new Drink("Long").addIngredient(new Ingredient("Water", 4))));
+        }
+        File file = new File(directory, "favourites.journal");
+        try (RandomAccessFile journal = new RandomAccessFile(file, "rw")) {
+            journal.setLength(file.length() - 1);
+        }
+
+        FavouritesStore recovered = reopen();
+
+        assertEquals(1, recovered.getNames("alice").size());
+        assertNotNull(recovered.find("alice", "Strong"));
+    }
+
+    @Test
+    public void sharedFavouritesGoToTheSharedUser() throws Exception {
+        byte[] name = "Long".getBytes(StandardCharsets.UTF_8);
+        byte[] water = "Water".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeByte(1);
+            record.writeShort(name.length);
+            record.write(name);
+            record.writeByte(1);
+            record.writeShort(water.length);
+            record.write(water);
+            record.writeByte(4);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        try (DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(new File(directory, "favourites.journal")))) {
+            out.writeInt(bytes.size());
+            out.writeInt((int) crc.getValue());
+            out.write(bytes.toByteArray());
+        }
+
+        FavouritesStore recovered = reopen();
+
+        assertEquals(4, recovered.find("shared", "Long").getQuantity(0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.coffee.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GroupCommitLogTest {
+
+    private File directory;
+
+    private File journal;
+
+    private File snapshot;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal").toFile();
+        directory.deleteOnExit();
+        journal = new File(directory, "test.journal");
+        snapshot = new File(directory, "test.snapshot");
+        journal.deleteOnExit();
+        snapshot.deleteOnExit();
+    }
+
+    private static String text(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> records = new ArrayList<>();
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 1 << 20, Collections::emptyList)) {
+            log.open(record -> records.add(text(record)));
+        }
+        return records;
+    }
+
+    @Test
+    public void appendedRecordsAreReplayedInOrder() throws Exception {
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 1 << 20, Collections::emptyList)) {
+            log.open(record -> fail());
+            log.append(bytes("Espresso"));
+            log.append(bytes("Coffee")).get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(Arrays.asList("Espresso", "Coffee"), replay());
+    }
+
+    @Test
+    public void concurrentAppendsAreAllCommitted() throws Exception {
+        List<CompletableFuture<Void>> commits = Collections.synchronizedList(new ArrayList<>());
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 1 << 20, Collections::emptyList)) {
+            log.open(record -> fail());
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        commits.add(log.append(bytes("order")));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1000, replay().size());
+    }
+
+    @Test
+    public void tornTailIsDiscarded() throws Exception {
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 1 << 20, Collections::emptyList)) {
+            log.open(record -> fail());
+            log.append(bytes("Espresso"));
+            log.append(bytes("Coffee")).get(10, TimeUnit.SECONDS);
+        }
+        long complete = journal.length();
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(complete - 3);
+        }
+
+        assertEquals(Collections.singletonList("Espresso"), replay());
+        assertEquals(8 + "Espresso".length(), journal.length());
+    }
+
+    @Test
+    public void corruptedRecordEndsTheJournal() throws Exception {
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 1 << 20, Collections::emptyList)) {
+            log.open(record -> fail());
+            log.append(bytes("Espresso"));
+            log.append(bytes("Coffee")).get(10, TimeUnit.SECONDS);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.seek(journal.length() - 1);
+            file.write('x');
+        }
+
+        assertEquals(Collections.singletonList("Espresso"), replay());
+    }
+
+    @Test
+    public void bigJournalIsCompactedIntoTheSnapshot() throws Exception {
+        try (GroupCommitLog log = new GroupCommitLog(journal, snapshot, 64,
+                () -> Collections.singletonList(bytes("state")))) {
+            log.open(record -> fail());
+            for (int i = 0; i < 10; i++) {
+                log.append(bytes("a record of sixteen")).get(10, TimeUnit.SECONDS);
+            }
+            assertTrue(log.getJournalSize() <= 64);
+        }
+
+        List<String> records = replay();
+        assertEquals("state", records.get(0));
+        assertTrue(records.size() < 10);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void appendRequiresAnOpenJournal() {
+        new GroupCommitLog(journal, snapshot, 64, Collections::emptyList).append(bytes("Espresso"));
+    }
+}
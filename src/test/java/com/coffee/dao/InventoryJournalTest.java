@@ -0,0 +1,192 @@
+package com.coffee.dao;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class InventoryJournalTest {
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("inventory").toFile();
+        directory.deleteOnExit();
+        new File(directory, "inventory.journal").deleteOnExit();
+        new File(directory, "inventory.checkpoint").deleteOnExit();
+    }
+
+    private static Drink espresso() {
+        return new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2));
+    }
+
+    private static CoffeeMachine machine() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        return machine;
+    }
+
+    @Test
+    public void stockSurvivesARestart() throws Exception {
+        CoffeeMachine machine = machine();
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            assertTrue(journal.open().isEmpty());
+            journal.recordLevels(machine.getIngredients());
+            machine.setInventoryListener(journal);
+
+            machine.prepareDrink(machine.getRecipe("Espresso"));
+            machine.prepareDrink(machine.getDrinkByName("Cappuccino"));
+        }
+
+        CoffeeMachine restarted = machine();
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            restarted.setStockLevels(journal.open());
+        }
+
+        assertEquals(36, restarted.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(36, restarted.getIngredientsMap().get("Water").getQuantity());
+        assertEquals(38, restarted.getIngredientsMap().get("Milk").getQuantity());
+        assertEquals(20, restarted.getIngredientsMap().get("Chocolate").getQuantity());
+    }
+
+    @Test
+    public void failedOrdersAreNotJournaled() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 1),
+                new Ingredient("Water", 10)));
+        machine.addDrink(espresso());
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            journal.open();
+            journal.recordLevels(machine.getIngredients());
+            machine.setInventoryListener(journal);
+            try {
+                machine.prepareDrink(machine.getRecipe("Espresso"));
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals(Integer.valueOf(10), journal.getLevels().get("Water"));
+            }
+        }
+    }
+
+    @Test
+    public void replayStartsFromTheLastCheckpoint() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 50),
+                new Ingredient("Water", 50)));
+        machine.addDrink(espresso());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (InventoryJournal journal = new InventoryJournal(directory, 16)) {
+            journal.open();
+            journal.recordLevels(machine.getIngredients());
+            machine.setInventoryListener(journal);
+            for (int i = 0; i < 25; i++) {
+                executor.submit(() -> machine.prepareDrink(machine.getRecipe("Espresso")));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertTrue(new File(directory, "inventory.checkpoint").isFile());
+
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            Map<String, Integer> levels = journal.open();
+
+            assertEquals(Integer.valueOf(0), levels.get("Coffee"));
+            assertEquals(Integer.valueOf(0), levels.get("Water"));
+        }
+    }
+
+    @Test
+    public void refillsSurviveARestart() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 10),
+                new Ingredient("Water", 10)));
+        machine.addDrink(espresso());
+        try (InventoryJournal journal = new InventoryJournal(directory, 16)) {
+            journal.open();
+            journal.recordLevels(machine.getIngredients());
+            machine.setInventoryListener(journal);
+            for (int i = 0; i < 20; i++) {
+                machine.prepareDrink(machine.getRecipe("Espresso"));
+                machine.refill("Coffee", 2);
+                machine.refill("Water", 2);
+            }
+            machine.prepareDrink(machine.getRecipe("Espresso"));
+            machine.setStockLevels(Collections.singletonMap("Water", 30));
+        }
+        assertTrue(new File(directory, "inventory.checkpoint").isFile());
+
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            Map<String, Integer> levels = journal.open();
+
+            assertEquals(Integer.valueOf(8), levels.get("Coffee"));
+            assertEquals(Integer.valueOf(30), levels.get("Water"));
+        }
+    }
+
+    @Test
+    public void concurrentOrdersAreAllJournaled() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 50),
+                new Ingredient("Water", 50), new Ingredient("Milk", 50), new Ingredient("Chocolate", 50)));
+        machine.addDrink(espresso());
+        machine.addDrink(new Drink("Chocolate")
+                .addIngredient(new Ingredient("Milk", 1))
+                .addIngredient(new Ingredient("Chocolate", 1)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            journal.open();
+            journal.recordLevels(machine.getIngredients());
+            machine.setInventoryListener(journal);
+            for (int i = 0; i < 40; i++) {
+                String drink = i % 2 == 0 ? "Espresso" : "Chocolate";
+                executor.submit(() -> machine.prepareDrink(machine.getRecipe(drink)));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        try (InventoryJournal journal = new InventoryJournal(directory)) {
+            Map<String, Integer> levels = journal.open();
+
+            assertEquals(Integer.valueOf(10), levels.get("Coffee"));
+            assertEquals(Integer.valueOf(10), levels.get("Water"));
+            assertEquals(Integer.valueOf(30), levels.get("Milk"));
+            assertEquals(Integer.valueOf(30), levels.get("Chocolate"));
+        }
+    }
+
+    @Test
+    public void acknowledgedOrderSurvivesACrash() throws Exception {
+        CoffeeMachine machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 10),
+                new Ingredient("Water", 10)));
+        machine.addDrink(espresso());
+        InventoryJournal crashed = new InventoryJournal(directory);
+        try {
+            crashed.open();
+            crashed.recordLevels(machine.getIngredients()).get(10, TimeUnit.SECONDS);
+            machine.setInventoryListener(crashed);
+
+            machine.prepareDrink(machine.getRecipe("Espresso"));
+
+            // the journal is never closed, as if the process had died
+            try (InventoryJournal journal = new InventoryJournal(directory)) {
+                Map<String, Integer> levels = journal.open();
+
+                assertEquals(Integer.valueOf(8), levels.get("Coffee"));
+                assertEquals(Integer.valueOf(8), levels.get("Water"));
+            }
+        } finally {
+            crashed.close();
+        }
+    }
+}
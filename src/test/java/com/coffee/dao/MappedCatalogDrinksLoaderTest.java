@@ -0,0 +1,99 @@
+package com.coffee.dao;
+
+import com.coffee.core.Drink;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MappedCatalogDrinksLoaderTest {
+
+    private static File convertTestCatalog() throws Exception {
+        File target = File.createTempFile("drinks", ".catalog");
+        target.deleteOnExit();
+        BinaryCatalogConverter.convert(new PropertiesFileDrinksLoader("../../../drinks.properties"), target);
+        return target;
+    }
+
+    @Test
+    public void convertedCatalogHasTheSameDrinks() throws Exception {
+        List<Drink> expected = new PropertiesFileDrinksLoader("../../../drinks.properties").loadDrinks();
+
+        List<Drink> drinks = new MappedCatalogDrinksLoader(convertTestCatalog()).loadDrinks();
+
+        assertEquals(expected, drinks);
+    }
+
+    @Test
+    public void drinksCanBeReadOneByOne() throws Exception {
+        MappedCatalogDrinksLoader loader = new MappedCatalogDrinksLoader(convertTestCatalog());
+
+        assertEquals(4, loader.size());
+        assertEquals("Cappuccino", loader.getName(2));
+        assertEquals("Chocolate", loader.getDrink(3).getName());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readingOutsideTheCatalogFails() throws Exception {
+        new MappedCatalogDrinksLoader(convertTestCatalog()).getDrink(4);
+    }
+
+    @Test(expected = IOException.class)
+    public void propertiesFileIsNotACatalog() throws Exception {
+        File file = File.createTempFile("drinks", ".properties");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "ISO-8859-1")) {
+            out.println("drinks.number=0");
+            out.println("# not a binary catalog");
+        }
+
+        new MappedCatalogDrinksLoader(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void ingredientTableRunningIntoTheRecordsIsRejected() throws Exception {
+        File file = convertTestCatalog();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(6);
+            out.writeShort(1000);
+        }
+
+        new MappedCatalogDrinksLoader(file);
+    }
+
+    @Test
+    public void unknownIngredientIndexIsReportedAsCorrupted() throws Exception {
+        File file = convertTestCatalog();
+        int recordsOffset;
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(16);
+            recordsOffset = out.readInt();
+            out.seek(recordsOffset + 2 + BinaryCatalogFormat.NAME_SIZE);
+            out.writeShort(1000);
+        }
+        MappedCatalogDrinksLoader loader = new MappedCatalogDrinksLoader(file);
+
+        try {
+            loader.getDrink(0);
+            fail("An ingredient outside the table was read");
+        } catch (RuntimeException e) {
+            assertEquals("Drinks configuration file corrupted", e.getMessage());
+        }
+        assertEquals("Chocolate", loader.getDrink(3).getName());
+    }
+
+    @Test
+    public void convertingReplacesTheCatalogWithoutLeavingATemporaryFile() throws Exception {
+        File target = convertTestCatalog();
+        MappedCatalogDrinksLoader before = new MappedCatalogDrinksLoader(target);
+
+        BinaryCatalogConverter.convert(new PropertiesFileDrinksLoader("../../../drinks.properties"), target);
+
+        assertFalse(new File(target.getPath() + ".tmp").exists());
+        assertEquals(before.loadDrinks(), new MappedCatalogDrinksLoader(target).loadDrinks());
+        assertEquals(4, before.size());
+    }
+}
@@ -0,0 +1,168 @@
+package com.coffee.dao;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StreamingDrinksLoaderTest {
+
+    private static File drinksFile() throws URISyntaxException {
+        return new File(StreamingDrinksLoaderTest.class.getResource("/drinks.properties").toURI());
+    }
+
+    private static File write(String... lines) throws IOException {
+        File file = File.createTempFile("drinks", ".properties");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "ISO-8859-1")) {
+            for (String line : lines) {
+                out.println(line);
+            }
+        }
+        return file;
+    }
+
+    @Test(expected = IOException.class)
+    public void ioExceptionIfFileDoesNotExist() throws IOException {
+        new StreamingDrinksLoader(new File("gaerhtjf"));
+    }
+
+    @Test
+    public void loadDrinksMatchesThePropertiesLoader() throws Exception {
+        List<Drink> streamed = new StreamingDrinksLoader(drinksFile()).loadDrinks();
+        List<Drink> loaded = new PropertiesFileDrinksLoader(drinksFile()).loadDrinks();
+
+        assertEquals(loaded, streamed);
+        assertEquals("Espresso", streamed.get(0).getName());
+        assertTrue(streamed.get(2).getIngredients().contains(new Ingredient("Milk", 2)));
+    }
+
+    @Test
+    public void keysThePropertiesLoaderIgnoresAreIgnored() throws Exception {
+        File file = write("drinks.number=1",
+                "drinks.comment=unused",
+                "drink0.name=Template",
+                "drinkX.name=Unused",
+                "drink01.name=Unused",
+                "drink1.name=Espresso",
+                "drink1.ingredients=1",
+                "drink1.ingredient0.name=Milk",
+                "drink1.ingredientA.quantity=3",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2",
+                "drink0.ingredients=1");
+
+        List<Drink> streamed = new StreamingDrinksLoader(file).loadDrinks();
+
+        assertEquals(new PropertiesFileDrinksLoader(file).loadDrinks(), streamed);
+        assertEquals(new Drink("Espresso").addIngredient(new Ingredient("Coffee", 2)), streamed.get(0));
+    }
+
+    @Test
+    public void drinksAreEmittedOneAtATime() throws Exception {
+        try (Stream<Drink> drinks = new StreamingDrinksLoader(drinksFile()).drinks()) {
+            Iterator<Drink> iterator = drinks.iterator();
+
+            assertEquals("Espresso", iterator.next().getName());
+            assertEquals("Coffee", iterator.next().getName());
+        }
+    }
+
+    @Test
+    public void drinksAfterDrinksNumberAreIgnored() throws Exception {
+        File file = write("drinks.number=1",
+                "drink1.name=Espresso",
+                "drink1.ingredients=1",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2",
+                "drink2.name=Coffee",
+                "drink2.ingredients=1",
+                "drink2.ingredient1.name=Coffee",
+                "drink2.ingredient1.quantity=3");
+
+        List<Drink> drinks = new StreamingDrinksLoader(file).loadDrinks();
+
+        assertEquals(1, drinks.size());
+        assertEquals("Espresso", drinks.get(0).getName());
+    }
+
+    @Test
+    public void separatorsAndCommentsFollowThePropertiesFormat() throws Exception {
+        File file = write("# a comment",
+                "! another comment",
+                "drinks.number : 1",
+                "   drink1.name Espresso",
+                "drink1.ingredients=1",
+                "drink1.ingredient1.quantity=2",
+                "drink1.ingredient1.name=Coffee");
+
+        List<Drink> drinks = new StreamingDrinksLoader(file).loadDrinks();
+
+        assertEquals(new Drink("Espresso").addIngredient(new Ingredient("Coffee", 2)), drinks.get(0));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingIngredientIsReported() throws Exception {
+        File file = write("drinks.number=1",
+                "drink1.name=Espresso",
+                "drink1.ingredients=2",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2");
+
+        new StreamingDrinksLoader(file).loadDrinks();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingDrinkIsReported() throws Exception {
+        File file = write("drinks.number=2",
+                "drink1.name=Espresso",
+                "drink1.ingredients=1",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2");
+
+        new StreamingDrinksLoader(file).loadDrinks();
+    }
+
+    @Test
+    public void corruptedFileLoadsNoDrinkInTheMachine() throws Exception {
+        File file = write("drinks.number=2",
+                "drink1.name=Espresso",
+                "drink1.ingredients=1",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2");
+        CoffeeMachine machine = new CoffeeMachine(new StreamingDrinksLoader(file));
+
+        try {
+            machine.init();
+            fail("The second drink is missing");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        assertTrue(machine.getDrinksNameList().isEmpty());
+        assertFalse(machine.containsDrink("Espresso"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void splitRecordsAreReported() throws Exception {
+        File file = write("drinks.number=2",
+                "drink1.name=Espresso",
+                "drink2.name=Coffee",
+                "drink2.ingredients=1",
+                "drink2.ingredient1.name=Coffee",
+                "drink2.ingredient1.quantity=2",
+                "drink1.ingredients=1",
+                "drink1.ingredient1.name=Coffee",
+                "drink1.ingredient1.quantity=2");
+
+        new StreamingDrinksLoader(file).loadDrinks();
+    }
+}
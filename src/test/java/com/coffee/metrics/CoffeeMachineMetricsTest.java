@@ -0,0 +1,84 @@
+package com.coffee.metrics;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CoffeeMachineMetricsTest {
+
+    private static CoffeeMachine machine() {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 3));
+        coffeeMachine.addIngredient(new Ingredient("Water", 20));
+        coffeeMachine.addDrink(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 2)));
+        coffeeMachine.addDrink(new Drink("Wine")
+                .addIngredient(new Ingredient("Grapes", 2)));
+        return coffeeMachine;
+    }
+
+    private static void prepareIgnoringFailures(CoffeeMachine coffeeMachine, String drinkName) {
+        try {
+            coffeeMachine.prepareDrink(coffeeMachine.getRecipe(drinkName));
+        } catch (IllegalStateException e) {
+            // counted by the metrics
+        }
+    }
+
+    @Test
+    public void ordersAreCountedPerDrinkAndCause() {
+        CoffeeMachine coffeeMachine = machine();
+
+        prepareIgnoringFailures(coffeeMachine, "Espresso");
+        prepareIgnoringFailures(coffeeMachine, "Espresso");
+        prepareIgnoringFailures(coffeeMachine, "Wine");
+
+        CoffeeMachineMetrics metrics = coffeeMachine.getMetrics();
+        assertEquals(Long.valueOf(1), metrics.getPreparedOrders().get("Espresso"));
+        assertEquals(Long.valueOf(1), metrics.getFailedOrders().get("Espresso"));
+        assertEquals(Long.valueOf(1), metrics.getFailedOrders().get("Wine"));
+        assertEquals(Long.valueOf(1), metrics.getFailuresByCause().get("OUT_OF_STOCK"));
+        assertEquals(Long.valueOf(1), metrics.getFailuresByCause().get("BAD_RECIPE"));
+        assertEquals(1, metrics.getPrepareCount());
+    }
+
+    @Test
+    public void ingredientLevelsFollowTheStock() {
+        CoffeeMachine coffeeMachine = machine();
+
+        prepareIgnoringFailures(coffeeMachine, "Espresso");
+
+        assertEquals(Integer.valueOf(1), coffeeMachine.getMetrics().getIngredientLevels().get("Coffee"));
+        assertEquals(Integer.valueOf(18), coffeeMachine.getMetrics().getIngredientLevels().get("Water"));
+    }
+
+    @Test
+    public void metricsAreExposedThroughJmx() throws Exception {
+        CoffeeMachine coffeeMachine = machine();
+        ObjectName name = coffeeMachine.getMetrics().registerMBean("metricsTest");
+        try {
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "PrepareCount"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void histogramReportsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1023, histogram.getPercentileNanos(50));
+        assertEquals(1000000, histogram.getPercentileNanos(100));
+        assertEquals(1000000, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,124 @@
+package com.coffee.metrics;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StockForecasterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private final List<String> refills = new ArrayList<>();
+
+    private CoffeeMachine machine;
+
+    private StockForecaster forecaster;
+
+    @Before
+    public void setUp() {
+        machine = new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", 50), new Ingredient("Water", 50),
+                new Ingredient("Milk", 10)));
+        machine.addDrink(new Drink("Espresso")
+                .addIngredient(new Ingredient("Coffee", 2))
+                .addIngredient(new Ingredient("Water", 1)));
+        machine.addDrink(new Drink("Latte")
+                .addIngredient(new Ingredient("Coffee", 1))
+                .addIngredient(new Ingredient("Milk", 5)));
+        forecaster = new StockForecaster(machine, 60, 300, TimeUnit.SECONDS, now::get);
+        forecaster.setRefillListener((ingredient, quantity, nanosToEmpty) -> refills.add(ingredient));
+        machine.setInventoryListener(forecaster);
+    }
+
+    private void espressoEvery(int seconds, int orders) {
+        for (int i = 0; i < orders; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+            machine.prepareDrink(machine.getRecipe("Espresso"));
+        }
+    }
+
+    @Test
+    public void rateFollowsASteadyConsumption() {
+        espressoEvery(10, 15);
+
+        // two units every ten seconds, the estimate converging to 0.2/s
+        assertEquals(0.2, forecaster.getRatePerSecond("Coffee"), 0.05);
+        assertEquals(0, forecaster.getRatePerSecond("Milk"), 0);
+        long secondsToEmpty = TimeUnit.NANOSECONDS.toSeconds(forecaster.getNanosToEmpty("Coffee"));
+        assertTrue("Coffee empty in " + secondsToEmpty + " s", secondsToEmpty > 80 && secondsToEmpty < 160);
+        assertEquals(Long.MAX_VALUE, forecaster.getNanosToEmpty("Milk"));
+    }
+
+    @Test
+    public void rateDecaysWhenConsumptionStops() {
+        espressoEvery(10, 15);
+        double rate = forecaster.getRatePerSecond("Coffee");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        assertEquals(rate / Math.E, forecaster.getRatePerSecond("Coffee"), 1e-9);
+    }
+
+    @Test
+    public void refillIsAskedOnceAheadOfTime() {
+        espressoEvery(10, 5);
+        assertTrue(refills.isEmpty());
+
+        espressoEvery(10, 10);
+
+        assertEquals(Arrays.asList("Coffee"), refills);
+    }
+
+    @Test
+    public void clockMayStartBelowZero() {
+        now.set(-TimeUnit.DAYS.toNanos(365));
+
+        espressoEvery(10, 5);
+
+        assertTrue(refills.isEmpty());
+        assertEquals(0.15, forecaster.getRatePerSecond("Coffee"), 0.05);
+        assertEquals(0, forecaster.getRatePerSecond("Milk"), 0);
+    }
+
+    @Test
+    public void refillIsAskedAgainAfterTheStockRecovers() {
+        espressoEvery(10, 15);
+        assertEquals(1, refills.size());
+
+        Map<String, Integer> refilled = new HashMap<>();
+        refilled.put("Coffee", 50);
+        refilled.put("Water", 50);
+        machine.setStockLevels(refilled);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(300));
+        espressoEvery(10, 1);
+        espressoEvery(10, 14);
+
+        assertEquals(Arrays.asList("Coffee", "Coffee"), refills);
+    }
+
+    @Test
+    public void drinksAreRankedByWhenTheyBecomeUnavailable() {
+        espressoEvery(10, 15);
+        machine.prepareDrink(machine.getRecipe("Latte"));
+
+        List<StockForecaster.Forecast> drinks = forecaster.getDrinkForecasts();
+
+        // the milk left is enough for a single latte
+        assertEquals("Latte", drinks.get(0).getName());
+        assertEquals("Espresso", drinks.get(1).getName());
+        assertTrue(drinks.get(0).getNanos() < drinks.get(1).getNanos());
+        List<StockForecaster.Forecast> ingredients = forecaster.getIngredientForecasts();
+        assertEquals("Milk", ingredients.get(0).getName());
+        assertEquals("Coffee", ingredients.get(1).getName());
+        assertEquals("Water", ingredients.get(2).getName());
+    }
+}
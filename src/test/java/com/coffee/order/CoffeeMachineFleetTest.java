@@ -0,0 +1,125 @@
+package com.coffee.order;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import com.coffee.core.Recipe;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CoffeeMachineFleetTest {
+
+    private static final Recipe ESPRESSO = Recipe.of(new Drink("Espresso")
+            .addIngredient(new Ingredient("Coffee", 2))
+            .addIngredient(new Ingredient("Water", 2)));
+
+    private static CoffeeMachine machine(int coffee) {
+        return new CoffeeMachine(Arrays.asList(new Ingredient("Coffee", coffee), new Ingredient("Water", 50)));
+    }
+
+    /**
+     * Holds the first order the machine prepares until the latch opens; the
+     * returned latch opens once that order is held.
+     */
+    private static CountDownLatch holdFirstOrder(CoffeeMachine machine, CountDownLatch release) {
+        AtomicBoolean first = new AtomicBoolean();
+        CountDownLatch held = new CountDownLatch(1);
+        machine.setInventoryListener((stock, quantity) -> {
+            if (first.compareAndSet(false, true)) {
+                held.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return null;
+        });
+        return held;
+    }
+
+    @Test
+    public void ordersGoToAMachineWithStock() throws Exception {
+        CoffeeMachine empty = machine(0);
+        CoffeeMachine stocked = machine(10);
+        CoffeeMachineFleet fleet = new CoffeeMachineFleet(Arrays.asList(empty, stocked), 1, 10);
+
+        for (int i = 0; i < 3; i++) {
+            fleet.submitOrder(ESPRESSO).get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(4, stocked.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(0, fleet.getReroutedOrders());
+        fleet.shutdown();
+    }
+
+    @Test
+    public void ordersGoToTheShortestQueue() throws Exception {
+        CoffeeMachine first = machine(10);
+        CoffeeMachine second = machine(10);
+        CountDownLatch release = new CountDownLatch(1);
+        holdFirstOrder(first, release);
+        holdFirstOrder(second, release);
+        CoffeeMachineFleet fleet = new CoffeeMachineFleet(Arrays.asList(first, second), 1, 10);
+
+        CompletableFuture<Recipe> one = fleet.submitOrder(ESPRESSO);
+        CompletableFuture<Recipe> two = fleet.submitOrder(ESPRESSO);
+
+        assertEquals(1, fleet.getOutstandingOrders(0));
+        assertEquals(1, fleet.getOutstandingOrders(1));
+        release.countDown();
+        one.get(5, TimeUnit.SECONDS);
+        two.get(5, TimeUnit.SECONDS);
+        assertEquals(8, first.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(8, second.getIngredientsMap().get("Coffee").getQuantity());
+        fleet.shutdown();
+    }
+
+    @Test
+    public void orderLosingARaceForStockIsRoutedAgain() throws Exception {
+        CoffeeMachine first = machine(4);
+        CoffeeMachine second = machine(0);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstHeld = holdFirstOrder(first, release);
+        CoffeeMachineFleet fleet = new CoffeeMachineFleet(Arrays.asList(first, second), 1, 10);
+
+        CompletableFuture<Recipe> held = fleet.submitOrder(ESPRESSO);
+        CompletableFuture<Recipe> queued = fleet.submitOrder(ESPRESSO);
+        assertEquals(2, fleet.getOutstandingOrders(0));
+        assertTrue(firstHeld.await(5, TimeUnit.SECONDS));
+        first.prepareDrink(ESPRESSO);
+        second.setStockLevels(Collections.singletonMap("Coffee", 10));
+        release.countDown();
+
+        held.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(1, fleet.getReroutedOrders());
+        assertEquals(8, second.getIngredientsMap().get("Coffee").getQuantity());
+        fleet.shutdown();
+    }
+
+    @Test
+    public void orderFailsWhenNoMachineHasStock() throws Exception {
+        CoffeeMachineFleet fleet = new CoffeeMachineFleet(Arrays.asList(machine(1), machine(0)), 1, 10);
+
+        try {
+            fleet.submitOrder(ESPRESSO).get(5, TimeUnit.SECONDS);
+            fail("No machine has two portions of coffee");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        fleet.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fleetNeedsMachines() {
+        new CoffeeMachineFleet(Collections.emptyList(), 1, 10);
+    }
+}
@@ -0,0 +1,91 @@
+package com.coffee.order;
+
+import com.coffee.core.DrinkModifiers;
+import com.coffee.order.OrderRequest.Command;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class OrderParserTest {
+
+    private final OrderRequest request = new OrderRequest();
+
+    @Test
+    public void listAndHelpIgnoreCaseAndSpaces() {
+        assertEquals(Command.LIST, OrderParser.parse("  LIST ", request).getCommand());
+        assertEquals(Command.HELP, OrderParser.parse("Help", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("list all", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("", request).getCommand());
+    }
+
+    @Test
+    public void parsesModifiersAsSeparateTokens() {
+        OrderParser.parse("prepare Coffee + m s s", request);
+
+        assertEquals(Command.PREPARE, request.getCommand());
+        assertEquals("Coffee", request.getDrinkName().toString());
+        assertSame(DrinkModifiers.of(1, true, 2), request.getModifiers());
+    }
+
+    @Test
+    public void drinkNamesAreNotReadAsModifiers() {
+        OrderParser.parse("prepare Cappuccino", request);
+
+        assertEquals("Cappuccino", request.getDrinkName().toString());
+        assertSame(DrinkModifiers.NONE, request.getModifiers());
+
+        OrderParser.parse("prepare Mocha-Latte s", request);
+
+        assertEquals("Mocha-Latte", request.getDrinkName().toString());
+        assertSame(DrinkModifiers.of(0, false, 1), request.getModifiers());
+    }
+
+    @Test
+    public void saveTakesTheLastTokenAsFavourite() {
+        OrderParser.parse("save Coffee - s morning", request);
+
+        assertEquals(Command.SAVE, request.getCommand());
+        assertEquals("Coffee", request.getDrinkName().toString());
+        assertEquals("morning", request.getFavouriteName().toString());
+        assertSame(DrinkModifiers.of(-1, false, 1), request.getModifiers());
+    }
+
+    @Test
+    public void saveWithoutFavouriteIsInvalid() {
+        assertEquals(Command.INVALID, OrderParser.parse("save Coffee", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("prepare", request).getCommand());
+    }
+
+    @Test
+    public void unknownModifierIsInvalid() {
+        assertEquals(Command.INVALID, OrderParser.parse("prepare Coffee x", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("prepare Coffee ms", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("save Coffee x morning", request).getCommand());
+    }
+
+    @Test
+    public void commandsAreWholeWords() {
+        assertEquals(Command.INVALID, OrderParser.parse("prepared Coffee", request).getCommand());
+        assertEquals(Command.INVALID, OrderParser.parse("Prepare Coffee", request).getCommand());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void strengthCanBeChangedOnlyOnce() {
+        OrderParser.parse("prepare Coffee + -", request).getModifiers();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void milkCanBeAddedOnlyOnce() {
+        OrderParser.parse("prepare Coffee m m", request).getModifiers();
+    }
+
+    @Test
+    public void requestIsResetForEveryLine() {
+        OrderParser.parse("save Coffee + m favourite", request);
+        OrderParser.parse("prepare Espresso", request);
+
+        assertEquals(Command.PREPARE, request.getCommand());
+        assertEquals("Espresso", request.getDrinkName().toString());
+        assertEquals(0, request.getFavouriteName().length());
+        assertSame(DrinkModifiers.NONE, request.getModifiers());
+    }
+}
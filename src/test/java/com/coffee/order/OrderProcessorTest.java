@@ -0,0 +1,99 @@
+package com.coffee.order;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Drink;
+import com.coffee.core.Ingredient;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class OrderProcessorTest {
+
+    @Test
+    public void submittedOrderIsPrepared() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.init();
+        OrderProcessor processor = new OrderProcessor(coffeeMachine, 2, 10);
+
+        Drink espresso = processor.submitOrder("Espresso").get(5, TimeUnit.SECONDS);
+
+        assertEquals("Espresso", espresso.getName());
+        assertEquals(38, coffeeMachine.getIngredientsMap().get("Coffee").getQuantity());
+        assertEquals(1, processor.getPreparedOrders());
+        processor.shutdown();
+    }
+
+    @Test
+    public void unknownDrinkFailsTheOrder() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.init();
+        OrderProcessor processor = new OrderProcessor(coffeeMachine, 1, 1);
+
+        try {
+            processor.submitOrder("Tea").get(5, TimeUnit.SECONDS);
+            fail("Tea is not in the menu");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(1, processor.getFailedOrders());
+        processor.shutdown();
+    }
+
+    @Test
+    public void outOfStockFailsTheOrder() throws Exception {
+        CoffeeMachine coffeeMachine = new CoffeeMachine();
+        coffeeMachine.addIngredient(new Ingredient("Coffee", 1));
+        OrderProcessor processor = new OrderProcessor(coffeeMachine, 1, 1);
+
+        try {
+            processor.submitOrder(new Drink("Espresso").addIngredient(new Ingredient("Coffee", 2)))
+                    .get(5, TimeUnit.SECONDS);
+            fail("Not enough coffee");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, processor.getFailedOrders());
+        processor.shutdown();
+    }
+
+    @Test
+    public void ordersAreRejectedWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CoffeeMachine slowMachine = new CoffeeMachine() {
+            @Override
+            public void prepareDrink(Drink drink) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        OrderProcessor processor = new OrderProcessor(slowMachine, 1, 1);
+        Drink espresso = new Drink("Espresso").addIngredient(new Ingredient("Coffee", 2));
+
+        CompletableFuture<Drink> first = processor.submitOrder(espresso);
+        while (processor.getQueuedOrders() > 0) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<Drink> queued = processor.submitOrder(espresso);
+        CompletableFuture<Drink> rejected = processor.submitOrder(espresso);
+
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            fail("The queue is full");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, processor.getRejectedOrders());
+
+        release.countDown();
+        assertEquals(espresso, first.get(5, TimeUnit.SECONDS));
+        assertEquals(espresso, queued.get(5, TimeUnit.SECONDS));
+        processor.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+package ui;
+
+import com.coffee.core.CoffeeMachine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BatchHandlerTest {
+
+    private static CoffeeMachine machine() {
+        CoffeeMachine machine = new CoffeeMachine();
+        machine.init();
+        return machine;
+    }
+
+    private static BatchHandler.Summary run(CoffeeMachine machine, String input, StringWriter out)
+            throws IOException {
+        return new BatchHandler(machine, "alice").run(new BufferedReader(new StringReader(input)), out);
+    }
+
+    @Test
+    public void preparesEveryOrderOfTheInput() throws IOException {
+        StringWriter out = new StringWriter();
+
+        BatchHandler.Summary summary = run(machine(), "prepare Espresso\nprepare Coffee + s\n", out);
+
+        assertEquals(2, summary.getLines());
+        assertEquals(2, summary.getPrepared());
+        assertEquals("Prepared Espresso\nPrepared Coffee\n", out.toString());
+    }
+
+    @Test
+    public void countsTheOrdersThatCannotBePrepared() throws IOException {
+        StringWriter out = new StringWriter();
+
+        BatchHandler.Summary summary = run(machine(),
+                "prepare Mocha\nprepare Espresso s s s s\nprepare\nbrew Coffee\nprepare Coffee + -\n", out);
+
+        assertEquals(5, summary.getLines());
+        assertEquals(0, summary.getPrepared());
+        assertEquals(1, summary.getUnknown());
+        assertEquals(0, summary.getOutOfStock());
+        assertEquals(2, summary.getRejected());
+        assertEquals(2, summary.getInvalid());
+    }
+
+    @Test
+    public void runsOutOfStock() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            input.append("prepare Espresso\n");
+        }
+
+        BatchHandler.Summary summary = run(machine(), input.toString(), new StringWriter());
+
+        assertEquals(100, summary.getPrepared() + summary.getOutOfStock());
+        assertTrue(summary.getOutOfStock() > 0);
+    }
+
+    @Test
+    public void refillPolicyKeepsPreparing() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            input.append("prepare Espresso\n");
+        }
+
+        CoffeeMachine machine = machine();
+        BatchHandler.Summary summary = new BatchHandler(machine, "alice", BatchHandler.StockPolicy.REFILL)
+                .run(new BufferedReader(new StringReader(input.toString())), new StringWriter());
+
+        assertTrue(machine.getMetrics().getFailedOrders().isEmpty());
+        assertEquals(100, summary.getPrepared());
+        assertEquals(0, summary.getOutOfStock());
+        assertTrue(summary.getRefills() > 0);
+        assertTrue(summary.toString().contains("REFILL stock"));
+    }
+
+    @Test
+    public void savedFavouritesCanBeOrdered() throws IOException {
+        CoffeeMachine machine = machine();
+        StringWriter out = new StringWriter();
+
+        BatchHandler.Summary summary = run(machine, "save Espresso m morning\nprepare morning\n", out);
+
+        assertEquals(1, summary.getSaved());
+        assertEquals(1, summary.getPrepared());
+        assertNotNull(machine.getFavourites().find("alice", "morning"));
+    }
+}
@@ -0,0 +1,82 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CommandCompleterTest {
+
+    private static List<CharSequence> complete(CommandCompleter completer, String buffer) {
+        List<CharSequence> candidates = new ArrayList<>();
+        completer.complete(buffer, buffer.length(), candidates);
+        return candidates;
+    }
+
+    private static CommandCompleter completer() {
+        return new CommandCompleter(Arrays.asList("Espresso", "Coffee", "Cappuccino", "Chocolate"));
+    }
+
+    @Test
+    public void commandsAreCompletedFirst() {
+        assertEquals(Arrays.asList("prepare "), complete(completer(), "pr"));
+        assertEquals(4, complete(completer(), "").size());
+    }
+
+    @Test
+    public void commandsAreCompletedInAnyCase() {
+        assertEquals(Arrays.asList("list "), complete(completer(), "LI"));
+        assertEquals(Arrays.asList("help "), complete(completer(), "He"));
+    }
+
+    @Test
+    public void drinkNamesFollowPrepareAndSave() {
+        CommandCompleter completer = completer();
+        List<CharSequence> candidates = new ArrayList<>();
+
+        assertEquals(8, completer.complete("prepare C", 9, candidates));
+        assertEquals(Arrays.asList("Cappuccino", "Chocolate", "Coffee"), candidates);
+        assertEquals(Arrays.asList("Espresso "), complete(completer, "save E"));
+    }
+
+    @Test
+    public void modifiersFollowTheDrink() {
+        assertEquals(Arrays.asList("m "), complete(completer(), "prepare Coffee + m"));
+        assertEquals(4, complete(completer(), "prepare Coffee ").size());
+    }
+
+    @Test
+    public void otherCommandsHaveNoArguments() {
+        assertTrue(complete(completer(), "list C").isEmpty());
+    }
+
+    @Test
+    public void completerFollowsTheCatalog() {
+        CommandCompleter completer = completer();
+
+        completer.onDrinkAdded("Cortado");
+        completer.addFavouriteName("Colombian");
+
+        assertEquals(Arrays.asList("Coffee", "Colombian", "Cortado"), complete(completer, "prepare Co"));
+
+        completer.onCatalogReloaded(Arrays.asList("Cold"));
+
+        assertEquals(Arrays.asList("Cold", "Colombian"), complete(completer, "prepare Co"));
+    }
+
+    @Test
+    public void favouritesShareTheCandidatesCap() {
+        List<String> drinks = new ArrayList<>();
+        for (int i = 0; i < CommandCompleter.MAX_CANDIDATES; i++) {
+            drinks.add("Coffee" + (char) ('B' + i % 20) + (char) ('a' + i / 20));
+        }
+        CommandCompleter completer = new CommandCompleter(drinks);
+        completer.addFavouriteName("CoffeeA");
+
+        List<CharSequence> candidates = complete(completer, "prepare Co");
+
+        assertEquals(CommandCompleter.MAX_CANDIDATES, candidates.size());
+        assertEquals("CoffeeA", candidates.get(0));
+    }
+}
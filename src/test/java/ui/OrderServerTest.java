@@ -0,0 +1,196 @@
+package ui;
+
+import com.coffee.core.CoffeeMachine;
+import com.coffee.core.Recipe;
+import com.coffee.order.OrderProcessor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class OrderServerTest {
+
+    private CoffeeMachine machine;
+
+    private OrderProcessor orderProcessor;
+
+    private OrderServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        machine = new CoffeeMachine();
+        machine.init();
+        orderProcessor = new OrderProcessor(machine, 2, 64);
+        server = new OrderServer(machine, orderProcessor, 0);
+        server.start();
+    }
+
+    @After
+    public void stopServer() throws IOException, InterruptedException {
+        server.close();
+        orderProcessor.shutdown();
+        orderProcessor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String lines) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(lines.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void repliesToEveryCommandInOrder() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "user kiosk\nlist\nprepare Espresso + s\nprepare Mocha\nbrew Coffee\nsave Coffee m latte\r\nprepare latte\n");
+            BufferedReader in = reader(socket);
+
+            assertEquals("OK User kiosk", in.readLine());
+            assertEquals("OK Espresso Coffee Cappuccino Chocolate", in.readLine());
+            assertEquals("OK Prepared Espresso", in.readLine());
+            assertEquals("ERROR Drink not present: Mocha", in.readLine());
+            assertEquals("ERROR Command incorrect", in.readLine());
+            assertEquals("OK Saved latte", in.readLine());
+            assertEquals("OK Prepared latte", in.readLine());
+        }
+        assertNotNull(machine.getFavourites().find("kiosk", "latte"));
+    }
+
+    @Test
+    public void favouritesBelongToTheUserOfTheConnection() throws IOException {
+        try (Socket alice = connect(); Socket bob = connect(); Socket anonymous = connect()) {
+            send(alice, "user alice\nsave Coffee m latte\nprepare latte\n");
+            BufferedReader aliceIn = reader(alice);
+            assertEquals("OK User alice", aliceIn.readLine());
+            assertEquals("OK Saved latte", aliceIn.readLine());
+            assertEquals("OK Prepared latte", aliceIn.readLine());
+
+            send(bob, "user bob\nprepare latte\n");
+            BufferedReader bobIn = reader(bob);
+            assertEquals("OK User bob", bobIn.readLine());
+            assertEquals("ERROR Drink not present: latte", bobIn.readLine());
+
+            send(anonymous, "prepare Espresso\nsave Coffee m latte\nuser\n");
+            BufferedReader anonymousIn = reader(anonymous);
+            assertEquals("OK Prepared Espresso", anonymousIn.readLine());
+            assertEquals("ERROR Send \"user user_id\" before saving a favourite", anonymousIn.readLine());
+            assertEquals("ERROR Usage: user user_id", anonymousIn.readLine());
+        }
+        assertNotNull(machine.getFavourites().find("alice", "latte"));
+        assertNull(machine.getFavourites().find("bob", "latte"));
+    }
+
+    @Test
+    public void unexpectedErrorOnlyClosesItsConnection() throws IOException {
+        CoffeeMachine broken = new CoffeeMachine() {
+            @Override
+            public Recipe findRecipe(String userId, CharSequence drinkName) {
+                if ("Broken".contentEquals(drinkName)) {
+                    throw new RuntimeException("Drinks configuration file corrupted");
+                }
+                return super.findRecipe(userId, drinkName);
+            }
+        };
+        broken.init();
+        try (OrderServer brokenServer = new OrderServer(broken, orderProcessor, 0)) {
+            brokenServer.start();
+            try (Socket failing = new Socket(InetAddress.getLoopbackAddress(), brokenServer.getPort());
+                    Socket other = new Socket(InetAddress.getLoopbackAddress(), brokenServer.getPort())) {
+                failing.setSoTimeout(10000);
+                other.setSoTimeout(10000);
+                send(failing, "prepare Broken\nlist\n");
+                BufferedReader failingIn = reader(failing);
+                assertTrue(failingIn.readLine().startsWith("ERROR "));
+                assertNull(failingIn.readLine());
+
+                send(other, "list\n");
+                assertEquals("OK Espresso Coffee Cappuccino Chocolate", reader(other).readLine());
+            }
+        }
+    }
+
+    @Test
+    public void lastCommandWithoutNewLineIsAnswered() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "list\nprepare Espresso");
+            socket.shutdownOutput();
+            BufferedReader in = reader(socket);
+
+            assertEquals("OK Espresso Coffee Cappuccino Chocolate", in.readLine());
+            assertEquals("OK Prepared Espresso", in.readLine());
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    public void commandsSplitAcrossPacketsAreJoined() throws IOException, InterruptedException {
+        try (Socket socket = connect()) {
+            send(socket, "prep");
+            Thread.sleep(50);
+            send(socket, "are Coff");
+            Thread.sleep(50);
+            send(socket, "ee\n");
+
+            assertEquals("OK Prepared Coffee", reader(socket).readLine());
+        }
+    }
+
+    @Test
+    public void tooLongLinesCloseTheConnection() throws IOException {
+        char[] line = new char[OrderServer.MAX_LINE_LENGTH + 1];
+        Arrays.fill(line, 'x');
+        try (Socket socket = connect()) {
+            send(socket, new String(line));
+            BufferedReader in = reader(socket);
+
+            assertTrue(in.readLine().startsWith("ERROR"));
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    public void servesManyClientsAtOnce() throws IOException {
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Socket socket = connect();
+                sockets.add(socket);
+                send(socket, "prepare Espresso\n");
+            }
+            int prepared = 0;
+            for (Socket socket : sockets) {
+                String reply = reader(socket).readLine();
+                assertTrue(reply, reply.startsWith("OK ") || reply.startsWith("ERROR "));
+                if (reply.equals("OK Prepared Espresso")) {
+                    prepared++;
+                }
+            }
+            assertTrue(prepared > 0);
+            assertEquals(prepared, orderProcessor.getPreparedOrders());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}